@@ -0,0 +1,255 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.MultiRootedTree;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Generates documents with a configurable number of overlapping hierarchies
+ * over one sequence of text nodes. Output only depends on the seed and the
+ * settings, so the same corpus can be built as a graph or written as TEI
+ * files, one per hierarchy. Importing such a file yields the same text and
+ * elements, though adjacent text nodes end up merged.
+ * <p>
+ * The first hierarchy contains all text nodes; every other hierarchy contains
+ * each text node with the probability given as the degree of sharing. Each
+ * hierarchy nests its elements to the configured depth, each element having
+ * between one and twice the fan-out less one children, so element
+ * boundaries of different hierarchies rarely coincide.
+ */
+public class CorpusGenerator {
+    private static final String[] ELEMENT_NAMES = { "div", "p", "s", "seg", "w" };
+    private static final String TEI_NS = "http://www.tei-c.org/ns/1.0";
+
+    private final long seed;
+    private int hierarchies = 2;
+    private int depth = 3;
+    private int fanOut = 8;
+    private int textNodes = 10000;
+    private int textLength = 32;
+    private double sharing = 1.0;
+    private GoddagEdge.Encoding edgeEncoding = GoddagEdge.Encoding.ROOT_PROPERTY;
+    private int commitInterval = 10000;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setHierarchies(int hierarchies) {
+        this.hierarchies = hierarchies;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public void setTextNodes(int textNodes) {
+        this.textNodes = textNodes;
+    }
+
+    public void setTextLength(int textLength) {
+        this.textLength = textLength;
+    }
+
+    public void setSharing(double sharing) {
+        this.sharing = sharing;
+    }
+
+    public void setEdgeEncoding(GoddagEdge.Encoding edgeEncoding) {
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    public int getHierarchies() {
+        return hierarchies;
+    }
+
+    public String getText(int index) {
+        final Random random = new Random(seed * 31 + index);
+        final int length = textLength / 2 + random.nextInt(textLength + 1);
+        final StringBuilder text = new StringBuilder(length + 10);
+        while (text.length() < length) {
+            final int wordLength = 2 + random.nextInt(9);
+            for (int cc = 0; cc < wordLength; cc++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+
+    public MultiRootedTree generate(GraphDatabaseService db) {
+        final GraphSink sink = new GraphSink(db);
+        try {
+            final MultiRootedTree tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION, edgeEncoding);
+            sink.texts = new long[textNodes];
+            for (int tc = 0; tc < textNodes; tc++) {
+                sink.texts[tc] = new Text(db, getText(tc)).node.getId();
+                sink.created();
+            }
+            for (int hc = 0; hc < hierarchies; hc++) {
+                final Element root = tree.newRoot("tei", "text");
+                root.setAttribute("tei", "n", Integer.toString(hc));
+                sink.root = root;
+                sink.appenders[0] = new TreeAppender(root, root);
+                walk(hc, sink);
+            }
+            sink.tx.success();
+            return tree;
+        } finally {
+            sink.tx.finish();
+        }
+    }
+
+    public void writeTEI(int hierarchy, Writer out) throws IOException {
+        final XMLSink sink = new XMLSink(out);
+        out.write("<TEI xmlns=\"" + TEI_NS + "\"><text n=\"" + hierarchy + "\">");
+        walk(hierarchy, sink);
+        if (sink.failure != null) {
+            throw sink.failure;
+        }
+        out.write("</text></TEI>\n");
+    }
+
+    private void walk(int hierarchy, Sink sink) {
+        final Random random = new Random(seed + hierarchy + 1);
+        final int[] remaining = new int[depth + 1];
+        int open = 0;
+        for (int tc = 0; tc < textNodes; tc++) {
+            if (hierarchy > 0 && random.nextDouble() >= sharing) {
+                continue;
+            }
+            while (open > 0 && remaining[open] == 0) {
+                sink.end(open--);
+            }
+            while (open < depth) {
+                if (open > 0) {
+                    remaining[open]--;
+                }
+                remaining[++open] = 1 + random.nextInt(Math.max(1, 2 * fanOut - 1));
+                sink.start(open, ELEMENT_NAMES[(open - 1) % ELEMENT_NAMES.length]);
+            }
+            sink.text(tc);
+            if (open > 0) {
+                remaining[open]--;
+            }
+        }
+        while (open > 0) {
+            sink.end(open--);
+        }
+    }
+
+    private interface Sink {
+        void start(int level, String name);
+
+        void text(int index);
+
+        void end(int level);
+    }
+
+    private class GraphSink implements Sink {
+        private final GraphDatabaseService db;
+        private final TreeAppender[] appenders = new TreeAppender[depth + 1];
+        private Transaction tx;
+        private long[] texts;
+        private Element root;
+        private int created;
+
+        private GraphSink(GraphDatabaseService db) {
+            this.db = db;
+            this.tx = db.beginTx();
+        }
+
+        public void start(int level, String name) {
+            final Element element = appenders[level - 1].append(new Element(db, "tei", name));
+            appenders[level] = new TreeAppender(root, element);
+            created();
+        }
+
+        public void text(int index) {
+            appenders[depth].append(new Text(db.getNodeById(texts[index])));
+            created();
+        }
+
+        public void end(int level) {
+            appenders[level] = null;
+        }
+
+        private void created() {
+            if (commitInterval > 0 && ++created % commitInterval == 0) {
+                tx.success();
+                tx.finish();
+                tx = db.beginTx();
+            }
+        }
+    }
+
+    private class XMLSink implements Sink {
+        private final Writer out;
+        private final String[] names = new String[depth + 1];
+        private IOException failure;
+
+        private XMLSink(Writer out) {
+            this.out = out;
+        }
+
+        public void start(int level, String name) {
+            names[level] = name;
+            write("<" + name + ">");
+        }
+
+        public void text(int index) {
+            write(getText(index));
+        }
+
+        public void end(int level) {
+            write("</" + names[level] + ">");
+        }
+
+        private void write(String str) {
+            if (failure == null) {
+                try {
+                    out.write(str);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
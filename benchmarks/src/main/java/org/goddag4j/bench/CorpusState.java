@@ -0,0 +1,102 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.MultiRootedTree;
+import org.goddag4j.Text;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A corpus of overlapping hierarchies built by {@link CorpusGenerator}.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+    private static final int TEXT_SAMPLE = 100;
+
+    @Param({ "100000" })
+    public int textNodes;
+
+    @Param({ "2", "8" })
+    public int hierarchies;
+
+    @Param({ "3" })
+    public int depth;
+
+    @Param({ "8" })
+    public int fanOut;
+
+    @Param({ "1.0", "0.5" })
+    public double sharing;
+
+    public GraphDatabaseService db;
+    public MultiRootedTree tree;
+    public final List<Element> roots = new ArrayList<Element>();
+    public final List<Text> sampledTexts = new ArrayList<Text>();
+
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Databases.newDirectory("corpus");
+        db = Databases.create(dir);
+
+        final CorpusGenerator generator = new CorpusGenerator(0);
+        generator.setTextNodes(textNodes);
+        generator.setHierarchies(hierarchies);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        generator.setSharing(sharing);
+        tree = generator.generate(db);
+
+        Element first = null;
+        for (Element root : tree) {
+            roots.add(root);
+            if ("0".equals(root.getAttributeValue("tei", "n"))) {
+                first = root;
+            }
+        }
+        int index = 0;
+        for (GoddagTreeNode node : first.getDescendants(first)) {
+            if (node instanceof Text && index++ % (textNodes / TEXT_SAMPLE) == 0) {
+                sampledTexts.add((Text) node);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.shutdown();
+        Databases.delete(dir);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+
+class Databases {
+
+    static GraphDatabaseService create(File dir) throws IOException {
+        delete(dir);
+        return new EmbeddedGraphDatabase(dir.getAbsolutePath());
+    }
+
+    /**
+     * Evicts all nodes and relationships from the cache of the given
+     * database, so that the next access loads them from the store.
+     */
+    static void clearCache(GraphDatabaseService db) {
+        ((EmbeddedGraphDatabase) db).getConfig().getGraphDbModule().getNodeManager().clearCache();
+    }
+
+    static File newDirectory(String name) throws IOException {
+        final File dir = File.createTempFile("goddag-bench-" + name + "-", "");
+        delete(dir);
+        return dir;
+    }
+
+    static void delete(File file) throws IOException {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.goddag4j.Element;
+import org.goddag4j.io.GoddagBinaryWriter;
+import org.goddag4j.io.GoddagJSONWriter;
+import org.goddag4j.io.GoddagParallelXMLExporter;
+import org.goddag4j.io.GoddagXMLWriter;
+import org.goddag4j.io.NamespaceMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Benchmark
+    public void xml(GraphState graph) throws Exception {
+        final Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+        transformer.transform(new GoddagXMLWriter(graph.document, NamespaceMap.TEI_MAP, false).toSAXSource(),
+                new StreamResult(new NullWriter()));
+    }
+
+    @Benchmark
+    public void xmlStream(GraphState graph) throws Exception {
+        final XMLStreamWriter out = XML_OUTPUT_FACTORY.createXMLStreamWriter(new NullWriter());
+        new GoddagXMLWriter(graph.document, NamespaceMap.TEI_MAP, false).write(out);
+        out.close();
+    }
+
+    @Benchmark
+    public void xmlPage(GraphState graph) throws Exception {
+        final int middle = graph.paragraphElements.size() / 2;
+        final GoddagXMLWriter writer = new GoddagXMLWriter(graph.document, NamespaceMap.TEI_MAP, false);
+        writer.setRange(graph.paragraphElements.get(middle), graph.paragraphElements.get(middle + 9));
+        final XMLStreamWriter out = XML_OUTPUT_FACTORY.createXMLStreamWriter(new NullWriter());
+        writer.write(out);
+        out.close();
+    }
+
+    @Benchmark
+    public void xmlAllRoots(GraphState graph) throws Exception {
+        for (Element root : graph.allRoots) {
+            final XMLStreamWriter out = XML_OUTPUT_FACTORY.createXMLStreamWriter(new NullWriter());
+            new GoddagXMLWriter(root, NamespaceMap.TEI_MAP, false).write(out);
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public void xmlAllRootsParallel(GraphState graph, Workers workers) throws Exception {
+        new GoddagParallelXMLExporter(NamespaceMap.TEI_MAP, workers.executor).exportAll(graph.allRoots, NULL_TARGET);
+    }
+
+    @Benchmark
+    public void json(GraphState graph) throws Exception {
+        final JsonGenerator out = JSON_FACTORY.createJsonGenerator(new NullWriter());
+        new GoddagJSONWriter(NamespaceMap.TEI_MAP).write(graph.allRoots, out);
+        out.flush();
+    }
+
+    @Benchmark
+    public void jsonStreaming(GraphState graph) throws Exception {
+        final JsonGenerator out = JSON_FACTORY.createJsonGenerator(new NullWriter());
+        final GoddagJSONWriter writer = new GoddagJSONWriter(NamespaceMap.TEI_MAP);
+        writer.setStreaming(true);
+        writer.write(graph.allRoots, out);
+        out.flush();
+    }
+
+    @Benchmark
+    public void binary(GraphState graph) throws Exception {
+        new GoddagBinaryWriter(NamespaceMap.TEI_MAP).write(graph.allRoots, new NullOutputStream());
+    }
+
+    @State(Scope.Benchmark)
+    public static class Workers {
+        public ExecutorService executor;
+
+        @Setup
+        public void setUp() {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+
+    private static final GoddagParallelXMLExporter.Target NULL_TARGET = new GoddagParallelXMLExporter.Target() {
+
+        public Writer open(Element root) {
+            return new NullWriter();
+        }
+    };
+
+    private static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private static class NullWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
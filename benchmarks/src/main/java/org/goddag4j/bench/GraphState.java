@@ -0,0 +1,128 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.MultiRootedTree;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.goddag4j.io.GoddagXMLReader;
+import org.goddag4j.io.NamespaceMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.InputSource;
+
+/**
+ * A generated TEI document, imported into a multi-rooted tree. Further roots
+ * group the imported text nodes into lines of different lengths, which
+ * overlap with the imported markup and with each other.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+    private static final int LEAF_SAMPLE = 100;
+
+    @Param({ "100", "1000" })
+    public int paragraphs;
+
+    @Param({ "1", "3" })
+    public int depth;
+
+    @Param({ "1", "4" })
+    public int roots;
+
+    @Param({ "ROOT_TYPE", "ROOT_PROPERTY" })
+    public GoddagEdge.Encoding encoding;
+
+    public GraphDatabaseService db;
+    public MultiRootedTree tree;
+    public Element document;
+    public final List<Element> allRoots = new ArrayList<Element>();
+    public final List<Element> paragraphElements = new ArrayList<Element>();
+    public final List<Text> texts = new ArrayList<Text>();
+    public final List<Text> sampledTexts = new ArrayList<Text>();
+
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Databases.newDirectory("graph");
+        db = Databases.create(dir);
+
+        final File xml = TEIDocuments.write(paragraphs, depth, 0);
+        final GoddagXMLReader reader = new GoddagXMLReader(db, NamespaceMap.TEI_MAP, encoding);
+        reader.setCommitInterval(10000);
+        document = reader.parse(new InputSource(xml.toURI().toString()));
+        xml.delete();
+
+        final Transaction tx = db.beginTx();
+        try {
+            tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION, encoding);
+            tree.addRoot(document);
+            allRoots.add(document);
+
+            for (GoddagTreeNode node : document.getDescendants(document)) {
+                if (node instanceof Text) {
+                    texts.add((Text) node);
+                } else if (node instanceof Element && "p".equals(((Element) node).getName())) {
+                    paragraphElements.add((Element) node);
+                }
+            }
+            for (int sc = 0; sc < LEAF_SAMPLE; sc++) {
+                sampledTexts.add(texts.get(sc * texts.size() / LEAF_SAMPLE));
+            }
+
+            for (int rc = 1; rc < roots; rc++) {
+                final Element root = tree.newRoot("tei", "text");
+                final TreeAppender lines = new TreeAppender(root, root);
+                final int lineLength = rc + 2;
+                for (int tc = 0; tc < texts.size(); tc += lineLength) {
+                    final TreeAppender line = new TreeAppender(root, lines.append(new Element(db, "tei", "l")));
+                    for (int lc = tc; lc < Math.min(tc + lineLength, texts.size()); lc++) {
+                        line.append(texts.get(lc));
+                    }
+                }
+                allRoots.add(root);
+            }
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.shutdown();
+        Databases.delete(dir);
+    }
+}
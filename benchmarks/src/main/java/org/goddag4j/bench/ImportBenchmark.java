@@ -0,0 +1,178 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.io.GoddagBinaryReader;
+import org.goddag4j.io.GoddagBinaryWriter;
+import org.goddag4j.io.GoddagJSONReader;
+import org.goddag4j.io.GoddagJSONWriter;
+import org.goddag4j.io.GoddagPipelinedXMLReader;
+import org.goddag4j.io.GoddagStAXReader;
+import org.goddag4j.io.GoddagXMLReader;
+import org.goddag4j.io.NamespaceMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+/**
+ * Imports a generated TEI document into a database that keeps growing over
+ * the course of a trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    private static final int COMMIT_INTERVAL = 10000;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Param({ "100", "1000" })
+    public int paragraphs;
+
+    @Param({ "1", "3" })
+    public int depth;
+
+    @Param({ "ROOT_TYPE", "ROOT_PROPERTY" })
+    public GoddagEdge.Encoding encoding;
+
+    private File dir;
+    private GraphDatabaseService db;
+    private File xml;
+    private File binary;
+    private File json;
+    private XMLInputFactory xmlInputFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Databases.newDirectory("import");
+        db = Databases.create(dir);
+        xml = TEIDocuments.write(paragraphs, depth, 0);
+        xmlInputFactory = XMLInputFactory.newInstance();
+
+        final Element document = sax();
+        binary = File.createTempFile("goddag-bench-", ".bin");
+        final OutputStream binaryOut = new FileOutputStream(binary);
+        try {
+            new GoddagBinaryWriter(NamespaceMap.TEI_MAP).write(Collections.singleton(document), binaryOut);
+        } finally {
+            binaryOut.close();
+        }
+        json = File.createTempFile("goddag-bench-", ".json");
+        final JsonGenerator jsonOut = JSON_FACTORY.createJsonGenerator(json, JsonEncoding.UTF8);
+        try {
+            new GoddagJSONWriter(NamespaceMap.TEI_MAP).write(Collections.singleton(document), jsonOut);
+        } finally {
+            jsonOut.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.shutdown();
+        Databases.delete(dir);
+        xml.delete();
+        binary.delete();
+        json.delete();
+    }
+
+    @Benchmark
+    public Element sax() throws Exception {
+        final GoddagXMLReader reader = new GoddagXMLReader(db, NamespaceMap.TEI_MAP, encoding);
+        reader.setCommitInterval(COMMIT_INTERVAL);
+        return reader.parse(new InputSource(xml.toURI().toString()));
+    }
+
+    @Benchmark
+    public Element pipelined() throws Exception {
+        final GoddagPipelinedXMLReader reader = new GoddagPipelinedXMLReader(db, NamespaceMap.TEI_MAP, encoding);
+        reader.setCommitInterval(COMMIT_INTERVAL);
+        return reader.parse(new InputSource(xml.toURI().toString()));
+    }
+
+    @Benchmark
+    public List<Element> binary() throws Exception {
+        final GoddagBinaryReader reader = new GoddagBinaryReader(db, encoding);
+        reader.setCommitInterval(COMMIT_INTERVAL);
+        return reader.read(binary);
+    }
+
+    @Benchmark
+    public List<Element> json() throws Exception {
+        final JsonParser in = JSON_FACTORY.createJsonParser(json);
+        try {
+            final GoddagJSONReader reader = new GoddagJSONReader(db, encoding);
+            reader.setCommitInterval(COMMIT_INTERVAL);
+            return reader.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Element stax() throws Exception {
+        final InputStream in = new FileInputStream(xml);
+        final Transaction tx = db.beginTx();
+        try {
+            final XMLStreamReader xmlReader = xmlInputFactory.createXMLStreamReader(in);
+            final Element root = new GoddagStAXReader(db, NamespaceMap.TEI_MAP, encoding, xmlReader).parse();
+            xmlReader.close();
+            tx.success();
+            return root;
+        } finally {
+            tx.finish();
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Modifies the paragraphs of the imported document in turn. All changes are
+ * rolled back, so the cost of the rollback is part of each measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MutationBenchmark {
+
+    @Param({ "100" })
+    public int children;
+
+    private int next;
+
+    @Benchmark
+    public void insert(GraphState graph) {
+        final Transaction tx = graph.db.beginTx();
+        try {
+            final Element root = graph.document;
+            final Element paragraph = nextParagraph(graph);
+            for (int cc = 0; cc < children; cc++) {
+                paragraph.insert(root, new Text(graph.db, Integer.toString(cc)), null);
+            }
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void append(GraphState graph) {
+        final Transaction tx = graph.db.beginTx();
+        try {
+            final TreeAppender appender = new TreeAppender(graph.document, nextParagraph(graph));
+            for (int cc = 0; cc < children; cc++) {
+                appender.append(new Text(graph.db, Integer.toString(cc)));
+            }
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void remove(GraphState graph) {
+        final Transaction tx = graph.db.beginTx();
+        try {
+            final Element root = graph.document;
+            final Element paragraph = nextParagraph(graph);
+            paragraph.getParent(root).remove(root, paragraph, false);
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void merge(GraphState graph) {
+        final Transaction tx = graph.db.beginTx();
+        try {
+            final Element paragraph = nextParagraph(graph);
+            final int index = graph.paragraphElements.indexOf(paragraph);
+            if (index + 1 < graph.paragraphElements.size()) {
+                paragraph.merge(graph.document, graph.paragraphElements.get(index + 1), null);
+            }
+        } finally {
+            tx.finish();
+        }
+    }
+
+    private Element nextParagraph(GraphState graph) {
+        next = (next + 1) % graph.paragraphElements.size();
+        return graph.paragraphElements.get(next);
+    }
+}
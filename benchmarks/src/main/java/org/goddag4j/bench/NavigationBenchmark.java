@@ -0,0 +1,237 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.FrozenTree;
+import org.goddag4j.MultiRootedTree;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.Text;
+import org.goddag4j.TextCache;
+import org.goddag4j.TextOffsetIndex;
+import org.goddag4j.TextStore;
+import org.goddag4j.TreeCursor;
+import org.goddag4j.io.GoddagXMLReader;
+import org.goddag4j.io.NamespaceMap;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FrozenTrees {
+        public final List<FrozenTree> trees = new ArrayList<FrozenTree>();
+
+        @Setup
+        public void setUp(GraphState graph) {
+            for (Element root : graph.allRoots) {
+                trees.add(FrozenTree.freeze(root));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            for (FrozenTree tree : trees) {
+                tree.release();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TextOffsets {
+        private static final int OFFSET_SAMPLE = 10;
+
+        public TextOffsetIndex index;
+        public final int[] offsets = new int[OFFSET_SAMPLE];
+
+        @Setup
+        public void setUp(GraphState graph) {
+            index = TextOffsetIndex.build(graph.document);
+            for (int oc = 0; oc < OFFSET_SAMPLE; oc++) {
+                offsets[oc] = (int) ((long) oc * index.getLength() / OFFSET_SAMPLE);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            index.release();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class StoredDocument {
+        public Element document;
+        public TextStore store;
+
+        @Setup
+        public void setUp(GraphState graph) throws Exception {
+            final MultiRootedTree tree;
+            final Transaction tx = graph.db.beginTx();
+            try {
+                tree = new MultiRootedTree(graph.db.createNode(), MultiRootedTree.ROOT_RELATION, graph.encoding);
+                store = tree.getTextStore();
+                final File xml = TEIDocuments.write(graph.paragraphs, graph.depth, 0);
+                final GoddagXMLReader reader = new GoddagXMLReader(graph.db, NamespaceMap.TEI_MAP, graph.encoding);
+                reader.setTextStore(store);
+                document = reader.parse(new InputSource(xml.toURI().toString()));
+                xml.delete();
+                tree.addRoot(document);
+                tx.success();
+            } finally {
+                tx.finish();
+            }
+        }
+    }
+
+    @Benchmark
+    public void children(GraphState graph, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            for (GoddagTreeNode child : root.getChildren(root)) {
+                for (GoddagTreeNode grandChild : child.getChildren(root)) {
+                    bh.consume(grandChild);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void descendants(GraphState graph, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            for (GoddagTreeNode descendant : root.getDescendants(root)) {
+                bh.consume(descendant.getNodeType());
+            }
+        }
+    }
+
+    @Benchmark
+    public void ancestors(GraphState graph, Blackhole bh) {
+        for (Text text : graph.sampledTexts) {
+            for (Element root : graph.allRoots) {
+                for (GoddagTreeNode ancestor : text.getAncestors(root)) {
+                    bh.consume(ancestor);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void cursorDescendants(GraphState graph, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            final TreeCursor cursor = new TreeCursor(root);
+            while (cursor.nextDescendant()) {
+                bh.consume(cursor.getNodeType());
+            }
+        }
+    }
+
+    @Benchmark
+    public void frozenDescendants(FrozenTrees frozen, Blackhole bh) {
+        for (FrozenTree tree : frozen.trees) {
+            for (int nc = 1, size = tree.size(); nc < size; nc++) {
+                bh.consume(tree.getNodeType(nc));
+            }
+        }
+    }
+
+    @Benchmark
+    public void offsetLookup(TextOffsets offsets, Blackhole bh) {
+        for (int offset : offsets.offsets) {
+            bh.consume(offsets.index.getTextAt(offset));
+        }
+    }
+
+    @Benchmark
+    public void offsetWalk(GraphState graph, TextOffsets offsets, Blackhole bh) {
+        for (int offset : offsets.offsets) {
+            int start = 0;
+            for (GoddagTreeNode node : graph.document.getDescendants(graph.document)) {
+                if (node instanceof Text) {
+                    start += ((Text) node).getText().length();
+                    if (start > offset) {
+                        bh.consume(node);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void elementTexts(GraphState graph, Blackhole bh) {
+        for (GoddagTreeNode node : graph.document.getDescendants(graph.document)) {
+            if (node instanceof Element) {
+                bh.consume(node.getText(graph.document));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cachedElementTexts(GraphState graph, Blackhole bh) {
+        final TextCache cache = TextCache.create(graph.document);
+        for (GoddagTreeNode node : graph.document.getDescendants(graph.document)) {
+            if (node instanceof Element) {
+                bh.consume(cache.getText(node));
+            }
+        }
+        cache.release();
+    }
+
+    @Benchmark
+    public void documentText(StoredDocument stored, Blackhole bh) {
+        bh.consume(stored.document.getText(stored.document));
+    }
+
+    @Benchmark
+    public void storedDocumentText(StoredDocument stored, Blackhole bh) {
+        bh.consume(stored.store.getText(stored.document, stored.document));
+    }
+
+    @Benchmark
+    public void storedDocumentWrite(StoredDocument stored, Blackhole bh) throws Exception {
+        final StringWriter out = new StringWriter();
+        stored.store.write(out);
+        bh.consume(out);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.Text;
+import org.goddag4j.TreeCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlapBenchmark {
+
+    @Benchmark
+    public void descendants(CorpusState corpus, Blackhole bh) {
+        for (Element root : corpus.roots) {
+            final TreeCursor cursor = new TreeCursor(root);
+            while (cursor.nextDescendant()) {
+                bh.consume(cursor.getId());
+            }
+        }
+    }
+
+    @Benchmark
+    public void rootsOfTexts(CorpusState corpus, Blackhole bh) {
+        for (Text text : corpus.sampledTexts) {
+            for (Element root : text.getRoots()) {
+                bh.consume(root);
+            }
+        }
+    }
+
+    @Benchmark
+    public void ancestorsInAllRoots(CorpusState corpus, Blackhole bh) {
+        for (Text text : corpus.sampledTexts) {
+            for (Element root : text.getRoots()) {
+                for (GoddagTreeNode ancestor : text.getAncestors(root)) {
+                    bh.consume(ancestor);
+                }
+            }
+        }
+    }
+}
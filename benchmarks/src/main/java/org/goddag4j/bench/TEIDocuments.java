@@ -0,0 +1,79 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Writes synthetic TEI documents: paragraphs nested in a configurable number
+ * of segments, containing sentences with highlighted words.
+ */
+public class TEIDocuments {
+    private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+            "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua" };
+
+    public static File write(int paragraphs, int depth, long seed) throws IOException {
+        final File file = File.createTempFile("goddag-bench-", ".xml");
+        file.deleteOnExit();
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            write(out, paragraphs, depth, seed);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    public static void write(Writer out, int paragraphs, int depth, long seed) throws IOException {
+        final Random random = new Random(seed);
+        out.write("<TEI xmlns=\"http://www.tei-c.org/ns/1.0\"><text><body>\n");
+        for (int pc = 0; pc < paragraphs; pc++) {
+            out.write("<p n=\"" + pc + "\">");
+            for (int dc = 0; dc < depth; dc++) {
+                out.write("<seg n=\"" + dc + "\">");
+            }
+            final int sentences = 1 + random.nextInt(10);
+            for (int sc = 0; sc < sentences; sc++) {
+                final int words = 3 + random.nextInt(12);
+                for (int wc = 0; wc < words; wc++) {
+                    final String word = WORDS[random.nextInt(WORDS.length)];
+                    if (random.nextInt(8) == 0) {
+                        out.write("<hi rend=\"italic\">" + word + "</hi>");
+                    } else {
+                        out.write(word);
+                    }
+                    out.write(wc + 1 == words ? ". " : " ");
+                }
+            }
+            for (int dc = 0; dc < depth; dc++) {
+                out.write("</seg>");
+            }
+            out.write("</p>\n");
+        }
+        out.write("</body></text></TEI>\n");
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.Text;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splits text nodes of the imported document at every space, a hundred
+ * nodes per invocation one by one or as a batch, or a single text node of a
+ * megabyte into a thousand segments. The changes are rolled back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextSplitBenchmark {
+    private static final int TEXTS = 100;
+
+    private int next;
+
+    @State(Scope.Benchmark)
+    public static class LongText {
+        private static final int LENGTH = 1 << 20;
+        private static final int SEGMENTS = 1000;
+
+        @Param({ "false", "true" })
+        public boolean chunked;
+
+        public GraphDatabaseService db;
+        public Text text;
+        public final int[] positions = new int[SEGMENTS - 1];
+        private File dir;
+
+        @Setup
+        public void setUp() throws Exception {
+            dir = Databases.newDirectory("text");
+            db = Databases.create(dir);
+
+            final Random random = new Random(0);
+            final char[] content = new char[LENGTH];
+            for (int cc = 0; cc < LENGTH; cc++) {
+                content[cc] = (random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            }
+            for (int pc = 0; pc < positions.length; pc++) {
+                positions[pc] = (pc + 1) * (LENGTH / SEGMENTS);
+            }
+
+            final Transaction tx = db.beginTx();
+            try {
+                final Element root = new Element(db, "tei", "text");
+                text = new Text(db, new String(content), chunked);
+                root.insert(root, text, null);
+                tx.success();
+            } finally {
+                tx.finish();
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            db.shutdown();
+            Databases.delete(dir);
+        }
+    }
+
+    @Benchmark
+    public void split(GraphState graph, Blackhole bh) {
+        final List<Text> texts = graph.texts;
+        final Transaction tx = graph.db.beginTx();
+        try {
+            for (int tc = 0; tc < TEXTS; tc++) {
+                next = (next + 1) % texts.size();
+                final Text text = texts.get(next);
+                bh.consume(text.split(spaces(text.getText())));
+            }
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void splitBatch(GraphState graph, Blackhole bh) {
+        final List<Text> texts = graph.texts;
+        final Transaction tx = graph.db.beginTx();
+        try {
+            final Map<Text, int[]> positions = new LinkedHashMap<Text, int[]>();
+            for (int tc = 0; tc < TEXTS; tc++) {
+                next = (next + 1) % texts.size();
+                final Text text = texts.get(next);
+                positions.put(text, spaces(text.getText()));
+            }
+            bh.consume(Text.split(positions));
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @Benchmark
+    public void splitLong(LongText state, Blackhole bh) {
+        final Transaction tx = state.db.beginTx();
+        try {
+            bh.consume(state.text.split(state.positions));
+        } finally {
+            tx.finish();
+        }
+    }
+
+    private static int[] spaces(String text) {
+        int count = 0;
+        for (int cc = 1; cc < text.length(); cc++) {
+            if (text.charAt(cc - 1) == ' ') {
+                count++;
+            }
+        }
+        final int[] positions = new int[count];
+        for (int cc = 1, pc = 0; cc < text.length(); cc++) {
+            if (text.charAt(cc - 1) == ' ') {
+                positions[pc++] = cc;
+            }
+        }
+        return positions;
+    }
+}
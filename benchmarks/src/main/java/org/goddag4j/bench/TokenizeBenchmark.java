@@ -0,0 +1,133 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.goddag4j.token.AbstractTokenMarkupGenerator;
+import org.goddag4j.token.LineTokenMarkupGenerator;
+import org.goddag4j.token.WhitespaceTokenMarkupGenerator;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates token markup for a run of text nodes holding the given number
+ * of words, ten per line. The input is created anew before every
+ * invocation and the generated markup is committed, so commits are part of
+ * each measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizeBenchmark {
+    private static final int TEXTS = 100;
+
+    @Param({ "10000" })
+    public int words;
+
+    @Param({ "whitespace", "line" })
+    public String tokens;
+
+    @Param({ "1000", "10000" })
+    public int commitInterval;
+
+    private GraphDatabaseService db;
+    private File dir;
+    private final Random random = new Random(0);
+    private final List<Text> input = new ArrayList<Text>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Databases.newDirectory("tokenize");
+        db = Databases.create(dir);
+    }
+
+    @Setup(Level.Invocation)
+    public void createInput() {
+        input.clear();
+        final Transaction tx = db.beginTx();
+        try {
+            final Element root = new Element(db, "tei", "text");
+            final TreeAppender texts = new TreeAppender(root, root);
+            final StringBuilder content = new StringBuilder();
+            for (int tc = 0, wc = 0; tc < TEXTS; tc++) {
+                content.setLength(0);
+                for (; wc < (tc + 1) * words / TEXTS; wc++) {
+                    for (int cc = 1 + random.nextInt(8); cc > 0; cc--) {
+                        content.append((char) ('a' + random.nextInt(26)));
+                    }
+                    content.append(wc % 10 == 9 ? '\n' : ' ');
+                }
+                input.add(texts.append(new Text(db, content.toString())));
+            }
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.shutdown();
+        Databases.delete(dir);
+    }
+
+    @Benchmark
+    public Element generate() {
+        final AbstractTokenMarkupGenerator generator = ("line".equals(tokens) ? new LineTokenMarkupGenerator()
+                : new WhitespaceTokenMarkupGenerator());
+        generator.setCommitInterval(commitInterval);
+        final Element to;
+        final Transaction tx = db.beginTx();
+        try {
+            to = new Element(db, "tei", "text");
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+        generator.generate(input, to);
+        return to;
+    }
+}
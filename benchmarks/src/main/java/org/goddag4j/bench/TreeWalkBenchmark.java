@@ -0,0 +1,143 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagNode;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.TreeCursor;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Walks all roots of the imported document in full, dispatching on the type
+ * of every visited node, forwards via wrappers and a cursor and backwards
+ * from the last child of each element. With a cold cache, every visited
+ * node and edge is loaded from the store again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeWalkBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({ "false", "true" })
+        public boolean cold;
+
+        @Setup(Level.Invocation)
+        public void setUp(GraphState graph) {
+            if (cold) {
+                Databases.clearCache(graph.db);
+            }
+        }
+    }
+
+    /**
+     * Edges as imported, rewritten by a round trip through the other
+     * encoding, or stripped of the node types recorded on them, as in stores
+     * written before these were recorded.
+     */
+    @State(Scope.Benchmark)
+    public static class EdgeState {
+        @Param({ "imported", "converted", "legacy" })
+        public String edges;
+
+        @Setup(Level.Trial)
+        public void setUp(GraphState graph) {
+            final Transaction tx = graph.db.beginTx();
+            try {
+                if ("converted".equals(edges)) {
+                    for (Element root : graph.allRoots) {
+                        GoddagEdge.convert(root, graph.encoding == GoddagEdge.Encoding.ROOT_TYPE
+                                ? GoddagEdge.Encoding.ROOT_PROPERTY : GoddagEdge.Encoding.ROOT_TYPE);
+                        GoddagEdge.convert(root, graph.encoding);
+                    }
+                } else if ("legacy".equals(edges)) {
+                    for (Node node : graph.db.getAllNodes()) {
+                        for (Relationship edge : node.getRelationships(Direction.OUTGOING)) {
+                            edge.removeProperty(GoddagNode.PREFIX + ".nts");
+                        }
+                    }
+                }
+                tx.success();
+            } finally {
+                tx.finish();
+            }
+        }
+    }
+
+    @Benchmark
+    public void descendants(GraphState graph, EdgeState edges, CacheState cache, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            for (GoddagTreeNode node : root.getDescendants(root)) {
+                bh.consume(node.getNodeType());
+            }
+        }
+    }
+
+    @Benchmark
+    public void cursorDescendants(GraphState graph, EdgeState edges, CacheState cache, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            final TreeCursor cursor = new TreeCursor(root);
+            while (cursor.nextDescendant()) {
+                bh.consume(cursor.getNodeType());
+            }
+        }
+    }
+
+    @Benchmark
+    public void reverseWalk(GraphState graph, EdgeState edges, CacheState cache, Blackhole bh) {
+        for (Element root : graph.allRoots) {
+            reverseWalk(root, root, bh);
+        }
+    }
+
+    private static void reverseWalk(Element root, GoddagTreeNode parent, Blackhole bh) {
+        for (GoddagTreeNode child = parent.getLastChild(root); child != null; child = child.getPreviousSibling(root)) {
+            bh.consume(child.getNodeType());
+            if (child instanceof Element) {
+                reverseWalk(root, child, bh);
+            }
+        }
+    }
+}
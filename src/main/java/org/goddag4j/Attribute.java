@@ -21,6 +21,9 @@
 
 package org.goddag4j;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 
@@ -40,6 +43,11 @@ public class Attribute extends GoddagNode {
         setValue(value);
     }
 
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.ATTRIBUTE;
+    }
+
     public String getPrefix() {
         return (String) node.getProperty(PREFIX + ".prefix");
     }
@@ -68,6 +76,15 @@ public class Attribute extends GoddagNode {
         node.setProperty(PREFIX + ".value", value);
     }
 
+    public static Map<String, Object> properties(String prefix, String name, String value) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(NODE_TYPE_PROPERTY, NodeType.ATTRIBUTE.ordinal());
+        properties.put(PREFIX + ".prefix", prefix);
+        properties.put(PREFIX + ".name", name);
+        properties.put(PREFIX + ".value", value);
+        return properties;
+    }
+
     @Override
     public String toString() {
         return "<" + PREFIX + " '" + getQName() + "'/> " + node.toString();
@@ -21,6 +21,9 @@
 
 package org.goddag4j;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 
@@ -38,6 +41,11 @@ public class Comment extends GoddagTreeNode {
         setContent(content);
     }
 
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.COMMENT;
+    }
+
     @Override
     public String getText(Element root) {
         return "";
@@ -51,6 +59,13 @@ public class Comment extends GoddagTreeNode {
         node.setProperty(PREFIX + ".content", content);
     }
 
+    public static Map<String, Object> properties(String content) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(NODE_TYPE_PROPERTY, NodeType.COMMENT.ordinal());
+        properties.put(PREFIX + ".content", content);
+        return properties;
+    }
+
     @Override
     public String toString() {
         return "<" + PREFIX + " '" + getContent() + "'/> " + node.toString();
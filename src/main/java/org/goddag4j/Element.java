@@ -24,7 +24,9 @@ package org.goddag4j;
 import static org.neo4j.graphdb.Direction.INCOMING;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -34,6 +36,10 @@ import org.neo4j.helpers.collection.IterableWrapper;
 public class Element extends GoddagTreeNode {
 
     private static final String PREFIX = GoddagTreeNode.PREFIX + ".element";
+    private static final String EDGE_ENCODING_PROPERTY = PREFIX + ".edges";
+
+    private GoddagEdge.Encoding edgeEncoding;
+    private GoddagEdge[] edgeTypes;
 
     public Element(Node node) {
         super(node);
@@ -46,6 +52,11 @@ public class Element extends GoddagTreeNode {
         setPrefix(prefix);
     }
 
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.ELEMENT;
+    }
+
     public Iterable<Attribute> getAttributes() {
         return new IterableWrapper<Attribute, Relationship>(node.getRelationships(GoddagEdge.HAS_ATTRIBUTE)) {
 
@@ -116,6 +127,58 @@ public class Element extends GoddagTreeNode {
         node.setProperty(PREFIX + ".name", name);
     }
 
+    public GoddagEdge.Encoding getEdgeEncoding() {
+        if (edgeEncoding == null) {
+            final Integer encoding = (Integer) node.getProperty(EDGE_ENCODING_PROPERTY, null);
+            edgeEncoding = (encoding == null ? GoddagEdge.Encoding.ROOT_PROPERTY : GoddagEdge.ENCODINGS[encoding]);
+        }
+        return edgeEncoding;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the tree already has children in another encoding; use
+     *             {@link GoddagEdge#convert(Element, GoddagEdge.Encoding)}
+     *             to rewrite them
+     */
+    public void setEdgeEncoding(GoddagEdge.Encoding edgeEncoding) {
+        final GoddagEdge.Encoding current = getEdgeEncoding();
+        if (current != edgeEncoding && hasChildren(this)) {
+            throw new IllegalStateException("Edges of " + this + " are encoded as " + current);
+        }
+        recordEdgeEncoding(edgeEncoding);
+    }
+
+    /**
+     * @return the given edge type partitioned for this root, resolved once
+     *         per instance
+     */
+    GoddagEdge getEdgeType(GoddagEdge edgeType) {
+        GoddagEdge[] types = edgeTypes;
+        if (types == null) {
+            types = new GoddagEdge[GoddagEdge.TREE_EDGES.length];
+            for (int tc = 0; tc < types.length; tc++) {
+                types[tc] = GoddagEdge.TREE_EDGES[tc].forRoot(node.getId());
+            }
+            edgeTypes = types;
+        }
+        for (int tc = 0; tc < types.length; tc++) {
+            if (GoddagEdge.TREE_EDGES[tc] == edgeType) {
+                return types[tc];
+            }
+        }
+        return edgeType.forRoot(node.getId());
+    }
+
+    void recordEdgeEncoding(GoddagEdge.Encoding edgeEncoding) {
+        if (edgeEncoding == GoddagEdge.Encoding.ROOT_PROPERTY) {
+            node.removeProperty(EDGE_ENCODING_PROPERTY);
+        } else {
+            node.setProperty(EDGE_ENCODING_PROPERTY, edgeEncoding.ordinal());
+        }
+        this.edgeEncoding = edgeEncoding;
+    }
+
     @Override
     public void remove(Element root, GoddagTreeNode toRemove, boolean recursive) {
         super.remove(root, toRemove, recursive);
@@ -138,6 +201,22 @@ public class Element extends GoddagTreeNode {
         node.delete();        
     }
     
+    public static Map<String, Object> properties(String prefix, String name) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(NODE_TYPE_PROPERTY, NodeType.ELEMENT.ordinal());
+        properties.put(PREFIX + ".name", name);
+        properties.put(PREFIX + ".prefix", prefix);
+        return properties;
+    }
+
+    public static Map<String, Object> rootProperties(String prefix, String name, GoddagEdge.Encoding edgeEncoding) {
+        final Map<String, Object> properties = properties(prefix, name);
+        if (edgeEncoding != GoddagEdge.Encoding.ROOT_PROPERTY) {
+            properties.put(EDGE_ENCODING_PROPERTY, edgeEncoding.ordinal());
+        }
+        return properties;
+    }
+
     public static String getQName(String prefix, String name) {
         return (prefix.length() == 0 ? "" : prefix + ":") + name;
     }
@@ -0,0 +1,432 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Read-only snapshot of the navigational structure of one tree, loaded in a
+ * single pass. Nodes are numbered in document order; parent, child and
+ * sibling links are kept in arrays indexed by these numbers, with
+ * {@link #NONE} denoting missing links. As the descendants of a node form a
+ * contiguous range of numbers, descendant traversals and text concatenation
+ * do not need to follow any links.
+ * <p>
+ * A snapshot becomes invalid as soon as a modification of its tree is
+ * reported to {@link GoddagTreeListener}s, see {@link #isValid()} and
+ * {@link #refresh()}. Snapshots no longer needed should be
+ * {@link #release() released}.
+ */
+public class FrozenTree {
+    public static final int NONE = -1;
+
+    private final Element root;
+    private final GraphDatabaseService db;
+    private final int size;
+    private final long[] ids;
+    private final GoddagNode.NodeType[] types;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] lastChildren;
+    private final int[] nextSiblings;
+    private final int[] previousSiblings;
+    private final int[] ends;
+    private long[] sortedIds;
+    private int[] sortedIndices;
+    private final Invalidator invalidator;
+    private volatile boolean valid = true;
+
+    private FrozenTree(Element root, Loader loader) {
+        this.root = root;
+        this.db = root.node.getGraphDatabase();
+        this.size = loader.size;
+        this.ids = resize(loader.ids, size);
+        this.types = resize(loader.types, size);
+        this.parents = resize(loader.parents, size);
+        this.firstChildren = resize(loader.firstChildren, size);
+        this.lastChildren = resize(loader.lastChildren, size);
+        this.nextSiblings = resize(loader.nextSiblings, size);
+        this.previousSiblings = resize(loader.previousSiblings, size);
+        this.ends = resize(loader.ends, size);
+        this.invalidator = new Invalidator(this);
+    }
+
+    public static FrozenTree freeze(Element root) {
+        final Loader loader = new Loader();
+        final List<GoddagTreeNode> path = new ArrayList<GoddagTreeNode>();
+
+        GoddagTreeNode current = root;
+        int index = loader.add(current, NONE, NONE);
+        while (current != null) {
+            GoddagTreeNode child = current.getFirstChild(root);
+            if (child != null) {
+                path.add(current);
+                index = loader.add(child, index, NONE);
+                current = child;
+                continue;
+            }
+
+            while (true) {
+                loader.ends[index] = loader.size;
+                GoddagTreeNode sibling = (path.isEmpty() ? null : current.getNextSibling(root));
+                if (sibling != null) {
+                    index = loader.add(sibling, loader.parents[index], index);
+                    current = sibling;
+                    break;
+                }
+                if (path.isEmpty()) {
+                    current = null;
+                    break;
+                }
+                current = path.remove(path.size() - 1);
+                index = loader.parents[index];
+            }
+        }
+
+        final FrozenTree tree = new FrozenTree(root, loader);
+        tree.invalidator.register();
+        return tree;
+    }
+
+    public Element getRoot() {
+        return root;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Stops tracking modifications of the tree; the snapshot is invalid
+     * afterwards.
+     */
+    public void release() {
+        valid = false;
+        invalidator.release();
+    }
+
+    /**
+     * @return this snapshot if it is still valid, a newly loaded one otherwise
+     */
+    public FrozenTree refresh() {
+        return (valid ? this : freeze(root));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public GoddagNode.NodeType getNodeType(int index) {
+        return types[index];
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    public int getFirstChild(int index) {
+        return firstChildren[index];
+    }
+
+    public int getLastChild(int index) {
+        return lastChildren[index];
+    }
+
+    public int getNextSibling(int index) {
+        return nextSiblings[index];
+    }
+
+    public int getPreviousSibling(int index) {
+        return previousSiblings[index];
+    }
+
+    /**
+     * @return the index following the last descendant of the given node
+     */
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    public int indexOf(GoddagTreeNode node) {
+        synchronized (this) {
+            if (sortedIds == null) {
+                sortIds();
+            }
+        }
+        final int found = Arrays.binarySearch(sortedIds, node.node.getId());
+        return (found < 0 ? NONE : sortedIndices[found]);
+    }
+
+    public GoddagTreeNode get(int index) {
+        return (index == NONE ? null : (GoddagTreeNode) GoddagNode.wrap(db.getNodeById(ids[index]), types[index]));
+    }
+
+    public GoddagTreeNode getParent(GoddagTreeNode node) {
+        return get(parents[existingIndexOf(node)]);
+    }
+
+    public GoddagTreeNode getFirstChild(GoddagTreeNode node) {
+        return get(firstChildren[existingIndexOf(node)]);
+    }
+
+    public GoddagTreeNode getLastChild(GoddagTreeNode node) {
+        return get(lastChildren[existingIndexOf(node)]);
+    }
+
+    public GoddagTreeNode getNextSibling(GoddagTreeNode node) {
+        return get(nextSiblings[existingIndexOf(node)]);
+    }
+
+    public GoddagTreeNode getPreviousSibling(GoddagTreeNode node) {
+        return get(previousSiblings[existingIndexOf(node)]);
+    }
+
+    public boolean hasChildren(GoddagTreeNode node) {
+        return (firstChildren[existingIndexOf(node)] != NONE);
+    }
+
+    public Iterable<GoddagTreeNode> getChildren(GoddagTreeNode node) {
+        return new LinkIterable(firstChildren[existingIndexOf(node)], nextSiblings);
+    }
+
+    public Iterable<GoddagTreeNode> getFollowingSiblings(GoddagTreeNode node) {
+        return new LinkIterable(nextSiblings[existingIndexOf(node)], nextSiblings);
+    }
+
+    public Iterable<GoddagTreeNode> getPrecedingSiblings(GoddagTreeNode node) {
+        return new LinkIterable(previousSiblings[existingIndexOf(node)], previousSiblings);
+    }
+
+    public Iterable<GoddagTreeNode> getAncestors(GoddagTreeNode node) {
+        return new LinkIterable(parents[existingIndexOf(node)], parents);
+    }
+
+    public Iterable<GoddagTreeNode> getDescendants(GoddagTreeNode node) {
+        final int index = existingIndexOf(node);
+        return new RangeIterable(index + 1, ends[index]);
+    }
+
+    public String getText(GoddagTreeNode node) {
+        final int index = existingIndexOf(node);
+        final StringBuilder text = new StringBuilder();
+        for (int nc = index, end = ends[index]; nc < end; nc++) {
+            if (types[nc] == GoddagNode.NodeType.TEXT) {
+                text.append(new Text(db.getNodeById(ids[nc])).getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private int existingIndexOf(GoddagTreeNode node) {
+        final int index = indexOf(node);
+        if (index == NONE) {
+            throw new IllegalArgumentException(node.toString());
+        }
+        return index;
+    }
+
+    private void sortIds() {
+        final long[] keys = new long[size];
+        final int[] indices = new int[size];
+        final Integer[] order = new Integer[size];
+        for (int nc = 0; nc < size; nc++) {
+            order[nc] = nc;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            public int compare(Integer o1, Integer o2) {
+                final long id1 = ids[o1];
+                final long id2 = ids[o2];
+                return (id1 < id2 ? -1 : (id1 == id2 ? 0 : 1));
+            }
+        });
+        for (int nc = 0; nc < size; nc++) {
+            keys[nc] = ids[order[nc]];
+            indices[nc] = order[nc];
+        }
+        sortedIndices = indices;
+        sortedIds = keys;
+    }
+
+    private class LinkIterable implements Iterable<GoddagTreeNode> {
+        private final int first;
+        private final int[] links;
+
+        private LinkIterable(int first, int[] links) {
+            this.first = first;
+            this.links = links;
+        }
+
+        public Iterator<GoddagTreeNode> iterator() {
+            return new Iterator<GoddagTreeNode>() {
+                private int next = first;
+
+                public boolean hasNext() {
+                    return (next != NONE);
+                }
+
+                public GoddagTreeNode next() {
+                    if (next == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    final GoddagTreeNode node = get(next);
+                    next = links[next];
+                    return node;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    private class RangeIterable implements Iterable<GoddagTreeNode> {
+        private final int start;
+        private final int end;
+
+        private RangeIterable(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public Iterator<GoddagTreeNode> iterator() {
+            return new Iterator<GoddagTreeNode>() {
+                private int next = start;
+
+                public boolean hasNext() {
+                    return (next < end);
+                }
+
+                public GoddagTreeNode next() {
+                    if (next >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(next++);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    private static long[] resize(long[] array, int length) {
+        final long[] resized = new long[length];
+        System.arraycopy(array, 0, resized, 0, Math.min(array.length, length));
+        return resized;
+    }
+
+    private static int[] resize(int[] array, int length) {
+        final int[] resized = new int[length];
+        System.arraycopy(array, 0, resized, 0, Math.min(array.length, length));
+        return resized;
+    }
+
+    private static GoddagNode.NodeType[] resize(GoddagNode.NodeType[] array, int length) {
+        final GoddagNode.NodeType[] resized = new GoddagNode.NodeType[length];
+        System.arraycopy(array, 0, resized, 0, Math.min(array.length, length));
+        return resized;
+    }
+
+    private static class Loader {
+        private int size;
+        private long[] ids = new long[64];
+        private GoddagNode.NodeType[] types = new GoddagNode.NodeType[64];
+        private int[] parents = new int[64];
+        private int[] firstChildren = new int[64];
+        private int[] lastChildren = new int[64];
+        private int[] nextSiblings = new int[64];
+        private int[] previousSiblings = new int[64];
+        private int[] ends = new int[64];
+
+        private int add(GoddagTreeNode node, int parent, int previousSibling) {
+            if (size == ids.length) {
+                final int capacity = size * 2;
+                ids = resize(ids, capacity);
+                types = resize(types, capacity);
+                parents = resize(parents, capacity);
+                firstChildren = resize(firstChildren, capacity);
+                lastChildren = resize(lastChildren, capacity);
+                nextSiblings = resize(nextSiblings, capacity);
+                previousSiblings = resize(previousSiblings, capacity);
+                ends = resize(ends, capacity);
+            }
+
+            final int index = size++;
+            ids[index] = node.node.getId();
+            types[index] = node.getNodeType();
+            parents[index] = parent;
+            firstChildren[index] = NONE;
+            lastChildren[index] = NONE;
+            nextSiblings[index] = NONE;
+            previousSiblings[index] = previousSibling;
+            if (previousSibling != NONE) {
+                nextSiblings[previousSibling] = index;
+            } else if (parent != NONE) {
+                firstChildren[parent] = index;
+            }
+            if (parent != NONE) {
+                lastChildren[parent] = index;
+            }
+            return index;
+        }
+    }
+
+    private static class Invalidator extends RootListener<FrozenTree> {
+
+        private Invalidator(FrozenTree tree) {
+            super(tree.root, tree);
+        }
+
+        public void inserted(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            modified(root);
+        }
+
+        public void removed(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            modified(root);
+        }
+
+        public void textChanged(Text text) {
+        }
+
+        private void modified(Element root) {
+            final FrozenTree snapshot = view(root);
+            if (snapshot != null) {
+                snapshot.valid = false;
+                release();
+            }
+        }
+    }
+}
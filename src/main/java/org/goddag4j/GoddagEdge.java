@@ -21,9 +21,23 @@
 
 package org.goddag4j;
 
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.helpers.Predicate;
+import org.neo4j.helpers.collection.FilteringIterable;
+import org.neo4j.kernel.impl.batchinsert.BatchInserter;
 
 public class GoddagEdge implements RelationshipType {
     public static final GoddagEdge HAS_FIRST_CHILD = new GoddagEdge("has-first-child");
@@ -32,18 +46,48 @@ public class GoddagEdge implements RelationshipType {
     public static final GoddagEdge CONTAINS = new GoddagEdge("contains");
     public static final GoddagEdge HAS_ATTRIBUTE = new GoddagEdge("has-attribute");
 
-    private static final String ROOT_PROPERTY = GoddagNode.PREFIX + ".root";
+    public static final GoddagEdge[] TREE_EDGES = { HAS_FIRST_CHILD, IS_LAST_CHILD_OF, HAS_SIBLING, CONTAINS };
+
+    public static final Encoding[] ENCODINGS = Encoding.values();
+
+    private static final String ROOT_KEY = GoddagNode.PREFIX + ".root";
+    private static final String NODE_TYPES_KEY = GoddagNode.PREFIX + ".nts";
 
     private final String name;
+    private final boolean partitioned;
 
     private GoddagEdge(String name) {
         this.name = (GoddagNode.PREFIX + "." + name);
+        this.partitioned = false;
+    }
+
+    private GoddagEdge(GoddagEdge base, long root) {
+        this.name = (base.name + "." + root);
+        this.partitioned = true;
     }
 
     public String name() {
         return this.name;
     }
 
+    /**
+     * @return the relationship type of this edge type for the given root
+     *         under {@link Encoding#ROOT_TYPE}; types are equal by name, so
+     *         the result need not be unique
+     */
+    public GoddagEdge forRoot(long root) {
+        if (partitioned) {
+            throw new UnsupportedOperationException(name);
+        }
+        return new GoddagEdge(this, root);
+    }
+
+    public boolean includes(RelationshipType type) {
+        final String typeName = type.name();
+        return typeName.startsWith(name)
+                && (typeName.length() == name.length() || (typeName.length() > name.length() + 1 && typeName.charAt(name.length()) == '.'));
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj != null && obj instanceof RelationshipType) {
@@ -57,33 +101,211 @@ public class GoddagEdge implements RelationshipType {
         return name.hashCode();
     }
 
-    public static Relationship find(Iterable<Relationship> edges, long root) {
-        for (Relationship edge : edges) {
-            final long rootId = ((Long) edge.getProperty(ROOT_PROPERTY)).longValue();
-            if (root == rootId) {
-                return edge;
-            }
+    public static Relationship find(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+        return root.getEdgeEncoding().find(node, edgeType, direction, root);
+    }
+
+    public static long getRootId(Relationship rel) {
+        final String typeName = rel.getType().name();
+        final int separator = typeName.lastIndexOf('.');
+        if (Character.isDigit(typeName.charAt(separator + 1))) {
+            return Long.parseLong(typeName.substring(separator + 1));
         }
-        return null;
+        return ((Long) rel.getProperty(ROOT_KEY)).longValue();
     }
 
     public static Element getRoot(Relationship rel) {
-        final long rootId = ((Long) rel.getProperty(ROOT_PROPERTY)).longValue();
-        return (Element) GoddagTreeNode.wrap(rel.getGraphDatabase().getNodeById(rootId));
+        return new Element(rel.getGraphDatabase().getNodeById(getRootId(rel)));
+    }
+
+    public static Relationship add(GoddagEdge relationshipType, Node from, Node to, Element root) {
+        return root.getEdgeEncoding().add(relationshipType, from, null, to, null, root);
+    }
+
+    public static Relationship add(GoddagEdge relationshipType, GoddagTreeNode from, GoddagTreeNode to, Element root) {
+        return root.getEdgeEncoding().add(relationshipType, from.node, from.getNodeType(), to.node, to.getNodeType(), root);
+    }
+
+    /**
+     * Determines the type of the node an edge leads to without reading that
+     * node if the edge records it or leads to a parent.
+     */
+    static GoddagNode.NodeType getAdjacentType(Relationship edge, GoddagEdge edgeType, Direction direction, Element root) {
+        final Node adjacent = (direction == INCOMING ? edge.getStartNode() : edge.getEndNode());
+        if (leadsToParent(edgeType, direction)) {
+            return GoddagNode.NodeType.ELEMENT;
+        }
+        final GoddagNode.NodeType type = root.getEdgeEncoding().getNodeType(edge, direction);
+        return (type == null ? GoddagNode.getNodeType(adjacent) : type);
+    }
+
+    private static boolean leadsToParent(GoddagEdge edgeType, Direction direction) {
+        if (direction == INCOMING) {
+            return (edgeType == CONTAINS || edgeType == HAS_FIRST_CHILD);
+        }
+        return (edgeType == IS_LAST_CHILD_OF);
+    }
+
+    private static int nodeTypes(GoddagEdge edgeType, Node from, GoddagNode.NodeType fromType, Node to,
+            GoddagNode.NodeType toType) {
+        if (fromType == null) {
+            fromType = (leadsToParent(edgeType, INCOMING) ? GoddagNode.NodeType.ELEMENT : GoddagNode.getNodeType(from));
+        }
+        if (toType == null) {
+            toType = (leadsToParent(edgeType, OUTGOING) ? GoddagNode.NodeType.ELEMENT : GoddagNode.getNodeType(to));
+        }
+        return (fromType.ordinal() << 4) | toType.ordinal();
     }
 
-    public static void add(GoddagEdge relationshipType, Node from, Node to, long root) {
-        final Relationship r = from.createRelationshipTo(to, relationshipType);
-        r.setProperty(ROOT_PROPERTY, root);
+    public static void remove(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+        final Relationship r = find(node, edgeType, direction, root);
+        if (r != null) {
+            r.delete();
+        }
     }
 
-    public static void remove(Iterable<Relationship> rels, long root) {
-        for (Relationship r : rels) {
-            final long rootId = ((Long) r.getProperty(ROOT_PROPERTY)).longValue();
-            if (rootId == root) {
-                r.delete();
-                return;
+    public enum Encoding {
+        /**
+         * Encodes the root in the relationship type. Every root adds
+         * relationship types to the database, which are never reclaimed.
+         */
+        ROOT_TYPE {
+            @Override
+            Iterable<Relationship> findAll(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+                return node.getRelationships(root.getEdgeType(edgeType), direction);
+            }
+
+            @Override
+            Relationship add(GoddagEdge edgeType, Node from, GoddagNode.NodeType fromType, Node to,
+                    GoddagNode.NodeType toType, Element root) {
+                return from.createRelationshipTo(to, root.getEdgeType(edgeType));
+            }
+
+            @Override
+            GoddagNode.NodeType getNodeType(Relationship edge, Direction direction) {
+                return null;
+            }
+
+            @Override
+            public void add(BatchInserter inserter, GoddagEdge edgeType, long from, GoddagNode.NodeType fromType, long to,
+                    GoddagNode.NodeType toType, long root) {
+                inserter.createRelationship(from, to, edgeType.forRoot(root), null);
+            }
+        },
+
+        /**
+         * Stores the root as an edge property; lookups are linear in the
+         * number of roots sharing a node. The encoding of older stores.
+         */
+        ROOT_PROPERTY {
+            @Override
+            Relationship find(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+                final long rootId = root.node.getId();
+                for (Relationship edge : node.getRelationships(edgeType, direction)) {
+                    if (rootId == ((Long) edge.getProperty(ROOT_KEY)).longValue()) {
+                        return edge;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            Iterable<Relationship> findAll(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+                final long rootId = root.node.getId();
+                return new FilteringIterable<Relationship>(node.getRelationships(edgeType, direction), new Predicate<Relationship>() {
+
+                    public boolean accept(Relationship edge) {
+                        return rootId == ((Long) edge.getProperty(ROOT_KEY)).longValue();
+                    }
+                });
+            }
+
+            @Override
+            Relationship add(GoddagEdge edgeType, Node from, GoddagNode.NodeType fromType, Node to,
+                    GoddagNode.NodeType toType, Element root) {
+                final Relationship edge = from.createRelationshipTo(to, edgeType);
+                edge.setProperty(ROOT_KEY, root.node.getId());
+                edge.setProperty(NODE_TYPES_KEY, nodeTypes(edgeType, from, fromType, to, toType));
+                return edge;
+            }
+
+            @Override
+            GoddagNode.NodeType getNodeType(Relationship edge, Direction direction) {
+                final Integer types = (Integer) edge.getProperty(NODE_TYPES_KEY, null);
+                if (types == null) {
+                    return null;
+                }
+                return GoddagNode.NODE_TYPES[direction == INCOMING ? (types >> 4) : (types & 0xF)];
+            }
+
+            @Override
+            public void add(BatchInserter inserter, GoddagEdge edgeType, long from, GoddagNode.NodeType fromType, long to,
+                    GoddagNode.NodeType toType, long root) {
+                final Map<String, Object> properties = new HashMap<String, Object>(4);
+                properties.put(ROOT_KEY, root);
+                properties.put(NODE_TYPES_KEY, (fromType.ordinal() << 4) | toType.ordinal());
+                inserter.createRelationship(from, to, edgeType, properties);
+            }
+        };
+
+        Relationship find(Node node, GoddagEdge edgeType, Direction direction, Element root) {
+            final Iterator<Relationship> edges = findAll(node, edgeType, direction, root).iterator();
+            return (edges.hasNext() ? edges.next() : null);
+        }
+
+        abstract Iterable<Relationship> findAll(Node node, GoddagEdge edgeType, Direction direction, Element root);
+
+        /**
+         * @param fromType
+         *            the type of the start node or <code>null</code> if it is
+         *            to be read from the node if needed
+         * @param toType
+         *            the type of the end node, likewise
+         */
+        abstract Relationship add(GoddagEdge edgeType, Node from, GoddagNode.NodeType fromType, Node to,
+                GoddagNode.NodeType toType, Element root);
+
+        /**
+         * @return the type of the node at the given end of the edge or
+         *         <code>null</code> if the edge does not record it
+         */
+        abstract GoddagNode.NodeType getNodeType(Relationship edge, Direction direction);
+
+        public abstract void add(BatchInserter inserter, GoddagEdge edgeType, long from, GoddagNode.NodeType fromType,
+                long to, GoddagNode.NodeType toType, long root);
+    }
+
+    /**
+     * Rewrites the edges of a tree in the given encoding and records the
+     * encoding on its root. This is the only way to change the encoding of a
+     * root which already has children. Edges converted to
+     * {@link Encoding#ROOT_PROPERTY} record the types of their ends, which
+     * edges of stores written before lack.
+     */
+    public static void convert(Element root, Encoding to) {
+        final Encoding from = root.getEdgeEncoding();
+        if (from == to) {
+            return;
+        }
+        final Stack<Node> toConvert = new Stack<Node>();
+        toConvert.push(root.node);
+        while (!toConvert.isEmpty()) {
+            final Node node = toConvert.pop();
+            for (GoddagEdge edgeType : TREE_EDGES) {
+                final List<Relationship> edges = new ArrayList<Relationship>();
+                for (Relationship r : from.findAll(node, edgeType, OUTGOING, root)) {
+                    edges.add(r);
+                }
+                for (Relationship r : edges) {
+                    final Node end = r.getEndNode();
+                    if (edgeType == CONTAINS) {
+                        toConvert.push(end);
+                    }
+                    to.add(edgeType, node, from.getNodeType(r, INCOMING), end, from.getNodeType(r, OUTGOING), root);
+                    r.delete();
+                }
             }
         }
+        root.recordEdgeEncoding(to);
     }
 }
@@ -39,6 +39,10 @@ public abstract class GoddagNode {
         this.node = node;
     }
 
+    /**
+     * Subclasses return the type they have been created for without reading
+     * it from the node.
+     */
     public NodeType getNodeType() {
         return getNodeType(node);
     }
@@ -52,7 +56,10 @@ public abstract class GoddagNode {
     }
 
     public static GoddagNode wrap(Node node) {
-        final NodeType nodeType = getNodeType(node);
+        return wrap(node, getNodeType(node));
+    }
+
+    public static GoddagNode wrap(Node node, NodeType nodeType) {
         switch (nodeType) {
         case TEXT:
             return new Text(node);
@@ -0,0 +1,42 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+/**
+ * Notified of the structural changes made to trees via
+ * {@link GoddagTreeNode}, {@link TreeAppender} and {@link Text#split(int...)},
+ * and of changes of text content, in this VM and in all of its databases,
+ * whether they are committed or not. Changes made by other means and rolled
+ * back transactions are not reported.
+ */
+public interface GoddagTreeListener {
+
+    void inserted(Element root, GoddagTreeNode parent, GoddagTreeNode child);
+
+    void removed(Element root, GoddagTreeNode parent, GoddagTreeNode child);
+
+    /**
+     * Called after the content of a text node changed, in all trees
+     * containing it.
+     */
+    void textChanged(Text text);
+}
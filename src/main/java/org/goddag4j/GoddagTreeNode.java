@@ -24,24 +24,64 @@ package org.goddag4j;
 import static org.neo4j.graphdb.Direction.INCOMING;
 import static org.neo4j.graphdb.Direction.OUTGOING;
 
-import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.Predicate;
+import org.neo4j.helpers.collection.FilteringIterable;
 import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.helpers.collection.IteratorUtil;
 
 public abstract class GoddagTreeNode extends GoddagNode {
+    static final List<GoddagTreeListener> listeners = new CopyOnWriteArrayList<GoddagTreeListener>();
 
     protected GoddagTreeNode(Node node) {
         super(node);
     }
 
+    /**
+     * Registers a listener for all trees in this VM; see
+     * {@link GoddagTreeListener}.
+     */
+    public static void addListener(GoddagTreeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(GoddagTreeListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void fireInserted(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+        for (GoddagTreeListener listener : listeners) {
+            listener.inserted(root, parent, child);
+        }
+    }
+
+    static void fireRemoved(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+        for (GoddagTreeListener listener : listeners) {
+            listener.removed(root, parent, child);
+        }
+    }
+
+    static void fireTextChanged(Text text) {
+        for (GoddagTreeListener listener : listeners) {
+            listener.textChanged(text);
+        }
+    }
+
     public Iterable<Element> getRoots() {
-        return new IterableWrapper<Element, Relationship>(node.getRelationships(GoddagEdge.CONTAINS, INCOMING)) {
+        return new IterableWrapper<Element, Relationship>(new FilteringIterable<Relationship>(node.getRelationships(INCOMING),
+                new Predicate<Relationship>() {
+
+                    public boolean accept(Relationship item) {
+                        return GoddagEdge.CONTAINS.includes(item.getType());
+                    }
+                })) {
 
             @Override
             protected Element underlyingObjectToObject(Relationship object) {
@@ -51,8 +91,13 @@ public abstract class GoddagTreeNode extends GoddagNode {
     }
 
     private GoddagTreeNode adjacentTreeNode(GoddagEdge edgeType, Direction direction, Element root) {
-        final Relationship r = GoddagEdge.find(node.getRelationships(edgeType, direction), root.node.getId());
-        return (GoddagTreeNode) (r == null ? null : wrap(direction == INCOMING ? r.getStartNode() : r.getEndNode()));
+        final Relationship r = GoddagEdge.find(node, edgeType, direction, root);
+        return (r == null ? null : adjacentTreeNode(r, edgeType, direction, root));
+    }
+
+    static GoddagTreeNode adjacentTreeNode(Relationship r, GoddagEdge edgeType, Direction direction, Element root) {
+        return (GoddagTreeNode) wrap(direction == INCOMING ? r.getStartNode() : r.getEndNode(), GoddagEdge.getAdjacentType(r,
+                edgeType, direction, root));
     }
 
     public GoddagTreeNode getParent(Element root) {
@@ -76,7 +121,7 @@ public abstract class GoddagTreeNode extends GoddagNode {
     }
 
     public boolean hasChildren(Element root) {
-        return (GoddagEdge.find(node.getRelationships(GoddagEdge.HAS_FIRST_CHILD, OUTGOING), root.node.getId()) != null);
+        return (GoddagEdge.find(node, GoddagEdge.HAS_FIRST_CHILD, OUTGOING, root) != null);
     }
 
     public Iterable<GoddagTreeNode> getChildren(final Element root) {
@@ -171,44 +216,40 @@ public abstract class GoddagTreeNode extends GoddagNode {
             prevParent.unlink(root, child);
         }
 
-        final long rootId = root.node.getId();
-
         if (before == null) {
             final GoddagTreeNode lastChild = getLastChild(root);
             if (lastChild != null) {
-                GoddagEdge.add(GoddagEdge.HAS_SIBLING, lastChild.node, child.node, rootId);
-                GoddagEdge.remove(lastChild.node.getRelationships(GoddagEdge.IS_LAST_CHILD_OF, OUTGOING), rootId);
+                GoddagEdge.add(GoddagEdge.HAS_SIBLING, lastChild, child, root);
+                GoddagEdge.remove(lastChild.node, GoddagEdge.IS_LAST_CHILD_OF, OUTGOING, root);
             }
-            GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, child.node, node, rootId);
+            GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, child, this, root);
 
             final GoddagTreeNode firstChild = getFirstChild(root);
             if (firstChild == null) {
-                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, node, child.node, rootId);
+                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, this, child, root);
             }
         } else {
-            Node prevNode = null;
+            GoddagTreeNode prev = null;
 
-            final Relationship prevRel = GoddagEdge.find(before.node.getRelationships(GoddagEdge.HAS_SIBLING, INCOMING), rootId);
+            final Relationship prevRel = GoddagEdge.find(before.node, GoddagEdge.HAS_SIBLING, INCOMING, root);
             if (prevRel != null) {
-                prevNode = prevRel.getStartNode();
-                GoddagEdge.remove(Collections.singleton(prevRel), rootId);
+                prev = adjacentTreeNode(prevRel, GoddagEdge.HAS_SIBLING, INCOMING, root);
+                prevRel.delete();
             }
 
-            GoddagEdge.add(GoddagEdge.HAS_SIBLING, child.node, before.node, rootId);
+            GoddagEdge.add(GoddagEdge.HAS_SIBLING, child, before, root);
 
-            if (prevNode != null) {
-                GoddagEdge.add(GoddagEdge.HAS_SIBLING, prevNode, child.node, rootId);
+            if (prev != null) {
+                GoddagEdge.add(GoddagEdge.HAS_SIBLING, prev, child, root);
             } else {
-                final Relationship firstRel = GoddagEdge.find(node.getRelationships(GoddagEdge.HAS_FIRST_CHILD, OUTGOING), rootId);
-                if (firstRel != null) {
-                    GoddagEdge.remove(Collections.singleton(firstRel), rootId);
-                }
-                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, node, child.node, rootId);
+                GoddagEdge.remove(node, GoddagEdge.HAS_FIRST_CHILD, OUTGOING, root);
+                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, this, child, root);
             }
         }
 
-        GoddagEdge.add(GoddagEdge.CONTAINS, node, child.node, rootId);
+        GoddagEdge.add(GoddagEdge.CONTAINS, this, child, root);
 
+        fireInserted(root, this, child);
         return child;
     }
 
@@ -249,34 +290,37 @@ public abstract class GoddagTreeNode extends GoddagNode {
     }
 
     private void unlink(Element root, GoddagTreeNode child) {
-        final long rootId = root.node.getId();
-        final Relationship prev = GoddagEdge.find(child.node.getRelationships(GoddagEdge.HAS_SIBLING, INCOMING), rootId);
-        final Relationship next = GoddagEdge.find(child.node.getRelationships(GoddagEdge.HAS_SIBLING, OUTGOING), rootId);
+        final Relationship prevRel = GoddagEdge.find(child.node, GoddagEdge.HAS_SIBLING, INCOMING, root);
+        final Relationship nextRel = GoddagEdge.find(child.node, GoddagEdge.HAS_SIBLING, OUTGOING, root);
+        final GoddagTreeNode prev = (prevRel == null ? null
+                : adjacentTreeNode(prevRel, GoddagEdge.HAS_SIBLING, INCOMING, root));
+        final GoddagTreeNode next = (nextRel == null ? null
+                : adjacentTreeNode(nextRel, GoddagEdge.HAS_SIBLING, OUTGOING, root));
 
         if (prev != null && next != null) {
-            GoddagEdge.add(GoddagEdge.HAS_SIBLING, prev.getStartNode(), next.getEndNode(), rootId);
+            GoddagEdge.add(GoddagEdge.HAS_SIBLING, prev, next, root);
         }
-        Node prevNode = null;
         if (prev != null) {
-            prevNode = prev.getStartNode();
-            GoddagEdge.remove(Collections.singleton(prev), rootId);
+            prevRel.delete();
         } else {
-            GoddagEdge.remove(child.node.getRelationships(GoddagEdge.HAS_FIRST_CHILD, INCOMING), rootId);
+            GoddagEdge.remove(child.node, GoddagEdge.HAS_FIRST_CHILD, INCOMING, root);
             if (next != null) {
-                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, node, next.getEndNode(), rootId);
+                GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, this, next, root);
             }
         }
 
         if (next != null) {
-            GoddagEdge.remove(Collections.singleton(next), rootId);
+            nextRel.delete();
         } else {
-            GoddagEdge.remove(child.node.getRelationships(GoddagEdge.IS_LAST_CHILD_OF, OUTGOING), rootId);
-            if (prevNode != null) {
-                GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, prevNode, node, rootId);
+            GoddagEdge.remove(child.node, GoddagEdge.IS_LAST_CHILD_OF, OUTGOING, root);
+            if (prev != null) {
+                GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, prev, this, root);
             }
         }
 
-        GoddagEdge.remove(child.node.getRelationships(GoddagEdge.CONTAINS, INCOMING), rootId);
+        GoddagEdge.remove(child.node, GoddagEdge.CONTAINS, INCOMING, root);
+
+        fireRemoved(root, this, child);
     }
 
     public void clear(Element root) {
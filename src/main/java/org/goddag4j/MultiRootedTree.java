@@ -37,18 +37,29 @@ public class MultiRootedTree implements Iterable<Element> {
 
     private final RelationshipType rootRelation;
     private final Node node;
+    private final GoddagEdge.Encoding edgeEncoding;
 
     public MultiRootedTree(Node node, RelationshipType rootRelation) {
+        this(node, rootRelation, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public MultiRootedTree(Node node, RelationshipType rootRelation, GoddagEdge.Encoding edgeEncoding) {
         this.node = node;
         this.rootRelation = rootRelation;
+        this.edgeEncoding = edgeEncoding;
     }
 
     public Node getNode() {
         return node;
     }
-    
+
+    public GoddagEdge.Encoding getEdgeEncoding() {
+        return edgeEncoding;
+    }
+
     public Element newRoot(String prefix, String name) {
         final Element root = new Element(node.getGraphDatabase(), prefix, name);
+        root.setEdgeEncoding(edgeEncoding);
         addRoot(root);
         return root;
     }
@@ -62,7 +73,7 @@ public class MultiRootedTree implements Iterable<Element> {
 
             @Override
             protected Element underlyingObjectToObject(Relationship object) {
-                return (Element) GoddagTreeNode.wrap(object.getEndNode());
+                return new Element(object.getEndNode());
             }
         }.iterator();
     }
@@ -84,12 +95,33 @@ public class MultiRootedTree implements Iterable<Element> {
         return root;
     }
 
+    /**
+     * @return the text store of this tree or <code>null</code> if it has none
+     */
+    public TextStore findTextStore() {
+        final Relationship storeRel = node.getSingleRelationship(TextStore.RELATION, OUTGOING);
+        return (storeRel == null ? null : new TextStore(storeRel.getEndNode()));
+    }
+
+    /**
+     * @return the text store of this tree, created if necessary
+     */
+    public TextStore getTextStore() {
+        TextStore store = findTextStore();
+        if (store == null) {
+            final Node storeNode = node.getGraphDatabase().createNode();
+            node.createRelationshipTo(storeNode, TextStore.RELATION);
+            store = new TextStore(storeNode);
+        }
+        return store;
+    }
+
     public void delete() {
         final List<Relationship> rootRels = new ArrayList<Relationship>();
         IteratorUtil.addToCollection(node.getRelationships(rootRelation, OUTGOING).iterator(), rootRels);
 
         for (Relationship rootRel : rootRels) {
-            final Element root = (Element) GoddagTreeNode.wrap(rootRel.getEndNode());
+            final Element root = new Element(rootRel.getEndNode());
             root.clear(root);
             root.delete();            
             rootRel.delete();
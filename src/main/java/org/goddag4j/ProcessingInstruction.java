@@ -21,6 +21,9 @@
 
 package org.goddag4j;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 
@@ -39,6 +42,11 @@ public class ProcessingInstruction extends GoddagTreeNode {
         setInstruction(instruction);
     }
 
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.PI;
+    }
+
     @Override
     public String getText(Element root) {
         return "";
@@ -60,6 +68,14 @@ public class ProcessingInstruction extends GoddagTreeNode {
         node.setProperty(PREFIX + ".instruction", instruction);
     }
 
+    public static Map<String, Object> properties(String target, String instruction) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(NODE_TYPE_PROPERTY, NodeType.PI.ordinal());
+        properties.put(PREFIX + ".target", target);
+        properties.put(PREFIX + ".instruction", instruction);
+        return properties;
+    }
+
     @Override
     public String toString() {
         return "<" + PREFIX + " '" + getTarget() + "'/> " + node.toString();
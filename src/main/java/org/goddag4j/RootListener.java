@@ -0,0 +1,81 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import java.lang.ref.WeakReference;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Listener on behalf of a view of one tree, such as a {@link FrozenTree}. It
+ * only weakly refers to its view and stays registered until the view is
+ * released; listeners of views collected without being released are dropped
+ * whenever another one is registered.
+ */
+abstract class RootListener<T> implements GoddagTreeListener {
+    private final GraphDatabaseService db;
+    private final long rootId;
+    private final WeakReference<T> view;
+
+    RootListener(Element root, T view) {
+        this.db = root.node.getGraphDatabase();
+        this.rootId = root.node.getId();
+        this.view = new WeakReference<T>(view);
+    }
+
+    void register() {
+        for (GoddagTreeListener listener : GoddagTreeNode.listeners) {
+            if (listener instanceof RootListener<?> && ((RootListener<?>) listener).view.get() == null) {
+                GoddagTreeNode.removeListener(listener);
+            }
+        }
+        GoddagTreeNode.addListener(this);
+    }
+
+    void release() {
+        GoddagTreeNode.removeListener(this);
+    }
+
+    /**
+     * @return the view if the given root is its tree and the view is still in
+     *         use, <code>null</code> otherwise
+     */
+    T view(Element root) {
+        return (root.node.getId() == rootId && db.equals(root.node.getGraphDatabase()) ? view() : null);
+    }
+
+    /**
+     * @return the view if the given text is stored in the database of its tree
+     *         and the view is still in use, <code>null</code> otherwise
+     */
+    T view(Text text) {
+        return (db.equals(text.node.getGraphDatabase()) ? view() : null);
+    }
+
+    private T view() {
+        final T target = view.get();
+        if (target == null) {
+            release();
+        }
+        return target;
+    }
+}
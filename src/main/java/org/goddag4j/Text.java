@@ -23,23 +23,69 @@ package org.goddag4j;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 
+/**
+ * A leaf holding text content, either inline or as a range of chunks on a
+ * separate node, which the segments of a split text share.
+ */
 public class Text extends GoddagTreeNode {
 
     private static final String PREFIX = GoddagTreeNode.PREFIX + ".text";
+    private static final String OFFSET = PREFIX + ".offset";
+    static final String LENGTH = PREFIX + ".length";
+    static final String CHUNK = PREFIX + ".chunk.";
+    static final int CHUNK_SIZE = 16384;
+
+    private static final int CONTAINED = 0;
+    private static final int FIRST = 1;
+    private static final int LAST = 2;
+    private static final int PREVIOUS = 3;
+    private static final int NEXT = 4;
+
+    private static final RelationshipType SOURCE = new RelationshipType() {
+
+        public String name() {
+            return PREFIX + ".source";
+        }
+    };
 
     public Text(Node node) {
         super(node);
     }
 
     public Text(GraphDatabaseService db, String content) {
+        this(db, content, false);
+    }
+
+    public Text(GraphDatabaseService db, String content, boolean chunked) {
+        this(db.createNode());
+        setNodeType(NodeType.TEXT);
+        if (chunked) {
+            setSource(createSource(db, content), 0, content.length());
+        } else {
+            node.setProperty(PREFIX, content);
+        }
+    }
+
+    Text(GraphDatabaseService db, Node source, int offset, int length) {
         this(db.createNode());
         setNodeType(NodeType.TEXT);
-        setText(content);
+        setSource(source, offset, length);
+    }
+
+    @Override
+    public NodeType getNodeType() {
+        return NodeType.TEXT;
     }
 
     @Override
@@ -48,51 +94,241 @@ public class Text extends GoddagTreeNode {
     }
 
     public String getText() {
-        return (String) node.getProperty(PREFIX);
+        final String content = (String) node.getProperty(PREFIX, null);
+        return (content == null ? getText(0, getLength()) : content);
     }
 
+    public String getText(int from, int to) {
+        final String content = (String) node.getProperty(PREFIX, null);
+        if (content != null) {
+            return content.substring(from, to);
+        }
+        if (from < 0 || to > getLength() || from > to) {
+            throw new IndexOutOfBoundsException(from + " - " + to);
+        }
+
+        final int offset = getOffset();
+        return readChunks(getSource(), offset + from, offset + to);
+    }
+
+    static String readChunks(Node source, int start, int end) {
+        final StringBuilder text = new StringBuilder(end - start);
+        for (int cc = start / CHUNK_SIZE; cc * CHUNK_SIZE < end; cc++) {
+            final String chunk = (String) source.getProperty(CHUNK + cc);
+            final int chunkStart = cc * CHUNK_SIZE;
+            text.append(chunk, Math.max(start - chunkStart, 0), Math.min(end - chunkStart, chunk.length()));
+        }
+        return text.toString();
+    }
+
+    public int getLength() {
+        final String content = (String) node.getProperty(PREFIX, null);
+        return (content == null ? (Integer) node.getProperty(LENGTH) : content.length());
+    }
+
+    public boolean isChunked() {
+        return node.hasProperty(LENGTH);
+    }
+
+    /**
+     * Replaces the content, keeping the way it is stored.
+     */
     public void setText(String content) {
-        node.setProperty(PREFIX, content);
+        if (isChunked()) {
+            releaseSource();
+            setSource(createSource(node.getGraphDatabase(), content), 0, content.length());
+        } else {
+            node.setProperty(PREFIX, content);
+        }
+        fireTextChanged(this);
+    }
+
+    /**
+     * Deletes the node, which must not be part of any tree anymore, along
+     * with the chunks of its content if no other text refers to them.
+     */
+    public void delete() {
+        if (isChunked()) {
+            releaseSource();
+        }
+        node.delete();
+    }
+
+    /**
+     * @return the node storing the chunks of the content or <code>null</code>
+     *         if it is stored inline
+     */
+    Node getSource() {
+        final Relationship sourceRel = node.getSingleRelationship(SOURCE, Direction.OUTGOING);
+        return (sourceRel == null ? null : sourceRel.getEndNode());
+    }
+
+    int getOffset() {
+        return (Integer) node.getProperty(OFFSET);
+    }
+
+    private void setSource(Node source, int offset, int length) {
+        node.createRelationshipTo(source, SOURCE);
+        node.setProperty(OFFSET, offset);
+        node.setProperty(LENGTH, length);
+    }
+
+    private void releaseSource() {
+        final Relationship sourceRel = node.getSingleRelationship(SOURCE, Direction.OUTGOING);
+        final Node source = sourceRel.getEndNode();
+        sourceRel.delete();
+        if (!source.hasRelationship()) {
+            source.delete();
+        }
+    }
+
+    private static Node createSource(GraphDatabaseService db, String content) {
+        final Node source = db.createNode();
+        for (int cc = 0, start = 0; start < content.length(); cc++, start += CHUNK_SIZE) {
+            source.setProperty(CHUNK + cc, content.substring(start, Math.min(start + CHUNK_SIZE, content.length())));
+        }
+        return source;
     }
 
     public List<Text> split(int... positions) {
+        final List<Text> segments = segments(positions);
+        if (segments.size() > 1) {
+            replace(segments, new HashMap<Long, Element>());
+        }
+        return segments;
+    }
+
+    /**
+     * @return the segments of each text in iteration order of the given map;
+     *         texts not split at all map to a singleton list of themselves
+     */
+    public static Map<Text, List<Text>> split(Map<Text, int[]> positions) {
+        final Map<Long, Element> roots = new HashMap<Long, Element>();
+        final Map<Text, List<Text>> result = new LinkedHashMap<Text, List<Text>>();
+        for (Map.Entry<Text, int[]> split : positions.entrySet()) {
+            final Text text = split.getKey();
+            final List<Text> segments = text.segments(split.getValue());
+            if (segments.size() > 1) {
+                text.replace(segments, roots);
+            }
+            result.put(text, segments);
+        }
+        return result;
+    }
+
+    private List<Text> segments(int... positions) {
         if (positions.length == 0) {
             return Collections.singletonList(this);
         }
 
-        final String content = getText();
-        final int contentLength = content.length();
+        final String content = (String) node.getProperty(PREFIX, null);
+        final Node source = (content == null ? getSource() : null);
+        final int offset = (content == null ? getOffset() : 0);
+        final int contentLength = (content == null ? (Integer) node.getProperty(LENGTH) : content.length());
 
         final GraphDatabaseService db = node.getGraphDatabase();
-        List<Text> segments = new ArrayList<Text>(positions.length + 1);
+        final List<Text> segments = new ArrayList<Text>(positions.length + 1);
         int lastPos = 0;
-        for (int pc = 0; pc < positions.length; pc++) {
-            if (positions[pc] < 0 || positions[pc] >= contentLength) {
-                throw new IllegalArgumentException(Integer.toString(positions[pc]));
+        for (int position : positions) {
+            if (position < lastPos || position >= contentLength) {
+                throw new IllegalArgumentException(Integer.toString(position));
             }
-            if (lastPos == positions[pc]) {
-                continue;
-            }
-            segments.add(new Text(db, content.substring(lastPos, positions[pc])));
-            if ((pc + 1) == positions.length) {
-                segments.add(new Text(db, content.substring(positions[pc])));
-            } else {
-                lastPos = positions[pc];
+            if (position > lastPos) {
+                segments.add(source == null ? new Text(db, content.substring(lastPos, position)) : new Text(db, source,
+                        offset + lastPos, position - lastPos));
+                lastPos = position;
             }
         }
 
         if (segments.isEmpty()) {
             return Collections.singletonList(this);
         }
+        segments.add(source == null ? new Text(db, content.substring(lastPos)) : new Text(db, source, offset + lastPos,
+                contentLength - lastPos));
+        return segments;
+    }
+
+    /**
+     * Replaces this text by the given segments in all of its roots, rewiring
+     * the edges found in one scan over its relationships.
+     */
+    private void replace(List<Text> segments, Map<Long, Element> roots) {
+        final Map<Long, Relationship[]> edges = new HashMap<Long, Relationship[]>();
+        for (Relationship r : node.getRelationships()) {
+            final int kind = edgeKind(r);
+            if (kind < 0) {
+                continue;
+            }
+            final Long rootId = GoddagEdge.getRootId(r);
+            Relationship[] rootEdges = edges.get(rootId);
+            if (rootEdges == null) {
+                edges.put(rootId, rootEdges = new Relationship[5]);
+            }
+            rootEdges[kind] = r;
+        }
+
+        for (Map.Entry<Long, Relationship[]> rootEdges : edges.entrySet()) {
+            final Long rootId = rootEdges.getKey();
+            Element root = roots.get(rootId);
+            if (root == null) {
+                roots.put(rootId, root = new Element(node.getGraphDatabase().getNodeById(rootId)));
+            }
+
+            final Relationship[] r = rootEdges.getValue();
+            final Element parent = new Element(r[CONTAINED].getStartNode());
+            final GoddagTreeNode previous = (r[PREVIOUS] == null ? null : adjacentTreeNode(r[PREVIOUS],
+                    GoddagEdge.HAS_SIBLING, Direction.INCOMING, root));
+            final GoddagTreeNode next = (r[NEXT] == null ? null : adjacentTreeNode(r[NEXT], GoddagEdge.HAS_SIBLING,
+                    Direction.OUTGOING, root));
+            for (Relationship edge : r) {
+                if (edge != null) {
+                    edge.delete();
+                }
+            }
 
-        for (Element root : getRoots()) {
-            final GoddagTreeNode parent = getParent(root);
+            GoddagTreeNode last = previous;
             for (Text segment : segments) {
-                parent.insert(root, segment, this);
+                if (last == null) {
+                    GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, parent, segment, root);
+                } else {
+                    GoddagEdge.add(GoddagEdge.HAS_SIBLING, last, segment, root);
+                }
+                GoddagEdge.add(GoddagEdge.CONTAINS, parent, segment, root);
+                last = segment;
+            }
+            if (next == null) {
+                GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, last, parent, root);
+            } else {
+                GoddagEdge.add(GoddagEdge.HAS_SIBLING, last, next, root);
+            }
+
+            fireRemoved(root, parent, this);
+            for (Text segment : segments) {
+                fireInserted(root, parent, segment);
             }
-            parent.remove(root, this, false);
         }
-        return segments;
+    }
+
+    private int edgeKind(Relationship r) {
+        final RelationshipType type = r.getType();
+        final boolean incoming = r.getEndNode().equals(node);
+        if (GoddagEdge.CONTAINS.includes(type)) {
+            return (incoming ? CONTAINED : -1);
+        } else if (GoddagEdge.HAS_SIBLING.includes(type)) {
+            return (incoming ? PREVIOUS : NEXT);
+        } else if (GoddagEdge.HAS_FIRST_CHILD.includes(type)) {
+            return (incoming ? FIRST : -1);
+        } else if (GoddagEdge.IS_LAST_CHILD_OF.includes(type)) {
+            return (incoming ? -1 : LAST);
+        }
+        return -1;
+    }
+
+    public static Map<String, Object> properties(String content) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(NODE_TYPE_PROPERTY, NodeType.TEXT.ordinal());
+        properties.put(PREFIX, content);
+        return properties;
     }
 
     @Override
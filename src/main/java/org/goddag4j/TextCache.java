@@ -0,0 +1,190 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memoizes {@link GoddagTreeNode#getText(Element)} for the nodes of one tree.
+ * The text of an element is concatenated from the cached texts of its
+ * children. Text lengths are kept for all elements visited, the texts
+ * themselves up to a capacity in characters, evicting the least recently
+ * used ones.
+ * <p>
+ * Entries are dropped along the ancestor path of every modification reported
+ * to {@link GoddagTreeListener}s until the cache is {@link #release()
+ * released}; see {@link #clear()} for changes not reported.
+ */
+public class TextCache {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final Element root;
+    private final int capacity;
+    private final Map<Long, Integer> lengths = new HashMap<Long, Integer>();
+    private final Map<Long, String> texts = new LinkedHashMap<Long, String>(16, 0.75f, true);
+    private final Invalidator invalidator;
+    private int cached;
+
+    private TextCache(Element root, int capacity) {
+        this.root = root;
+        this.capacity = capacity;
+        this.invalidator = new Invalidator(this);
+    }
+
+    public static TextCache create(Element root) {
+        return create(root, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity
+     *            the number of characters of element texts to keep
+     */
+    public static TextCache create(Element root, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(Integer.toString(capacity));
+        }
+        final TextCache cache = new TextCache(root, capacity);
+        cache.invalidator.register();
+        return cache;
+    }
+
+    public Element getRoot() {
+        return root;
+    }
+
+    public synchronized String getText(GoddagTreeNode node) {
+        if (!(node instanceof Element)) {
+            return node.getText(root);
+        }
+
+        final Long id = node.node.getId();
+        String text = texts.get(id);
+        if (text == null) {
+            final Integer length = lengths.get(id);
+            final StringBuilder buf = new StringBuilder(length == null ? 16 : length);
+            for (GoddagTreeNode child : node.getChildren(root)) {
+                buf.append(getText(child));
+            }
+            text = buf.toString();
+            lengths.put(id, text.length());
+            cache(id, text);
+        }
+        return text;
+    }
+
+    public synchronized int getLength(GoddagTreeNode node) {
+        if (node instanceof Text) {
+            return ((Text) node).getLength();
+        }
+        if (!(node instanceof Element)) {
+            return node.getText(root).length();
+        }
+
+        final Long id = node.node.getId();
+        Integer length = lengths.get(id);
+        if (length == null) {
+            int sum = 0;
+            for (GoddagTreeNode child : node.getChildren(root)) {
+                sum += getLength(child);
+            }
+            lengths.put(id, length = sum);
+        }
+        return length;
+    }
+
+    public synchronized int size() {
+        return texts.size();
+    }
+
+    public void release() {
+        invalidator.release();
+    }
+
+    public synchronized void clear() {
+        lengths.clear();
+        texts.clear();
+        cached = 0;
+    }
+
+    private void cache(Long id, String text) {
+        if (text.length() > capacity) {
+            return;
+        }
+        texts.put(id, text);
+        cached += text.length();
+        for (Iterator<String> it = texts.values().iterator(); cached > capacity && it.hasNext();) {
+            cached -= it.next().length();
+            it.remove();
+        }
+    }
+
+    private synchronized void invalidate(GoddagTreeNode node) {
+        if (remove(node) || node instanceof Text) {
+            for (GoddagTreeNode ancestor : node.getAncestors(root)) {
+                if (!remove(ancestor)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lengths are computed bottom-up, so an element without a cached length
+     * has no ancestor with one either.
+     */
+    private boolean remove(GoddagTreeNode node) {
+        final Long id = node.node.getId();
+        final String text = texts.remove(id);
+        if (text != null) {
+            cached -= text.length();
+        }
+        return (lengths.remove(id) != null);
+    }
+
+    private static class Invalidator extends RootListener<TextCache> {
+
+        private Invalidator(TextCache cache) {
+            super(cache.root, cache);
+        }
+
+        public void inserted(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            modified(view(root), parent);
+        }
+
+        public void removed(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            modified(view(root), parent);
+        }
+
+        public void textChanged(Text text) {
+            modified(view(text), text);
+        }
+
+        private void modified(TextCache cache, GoddagTreeNode node) {
+            if (cache != null) {
+                cache.invalidate(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Maps character offsets in the text of one tree to the {@link Text} leaves containing them. The leaves are kept in a
+ * treap ordered by position whose entries sum up the lengths below them, so lookups and updates are logarithmic in the
+ * number of leaves and do not touch the graph.
+ * <p>
+ * The index follows the modifications of its tree reported to {@link GoddagTreeListener}s until it is
+ * {@link #release() released}. Subtrees are indexed once they are attached to the root; see {@link #rebuild()} for
+ * changes not reported.
+ */
+public class TextOffsetIndex {
+    private final Element root;
+    private final GraphDatabaseService db;
+    private final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+    private final Random priorities = new Random();
+    private final Updater updater;
+    private Entry tree;
+
+    private TextOffsetIndex(Element root) {
+        this.root = root;
+        this.db = root.node.getGraphDatabase();
+        this.updater = new Updater(this);
+        rebuild();
+    }
+
+    public static TextOffsetIndex build(Element root) {
+        final TextOffsetIndex index = new TextOffsetIndex(root);
+        index.updater.register();
+        return index;
+    }
+
+    public void release() {
+        updater.release();
+    }
+
+    public Element getRoot() {
+        return root;
+    }
+
+    public synchronized void rebuild() {
+        entries.clear();
+        final List<Text> texts = new ArrayList<Text>();
+        collect(root, texts);
+        setTree(entries(texts));
+    }
+
+    public synchronized int size() {
+        return size(tree);
+    }
+
+    public synchronized int getLength() {
+        return length(tree);
+    }
+
+    public synchronized Text getText(int index) {
+        return new Text(db.getNodeById(entryAt(index).id));
+    }
+
+    public synchronized int getStart(int index) {
+        return start(entryAt(index));
+    }
+
+    public synchronized int getEnd(int index) {
+        final Entry entry = entryAt(index);
+        return start(entry) + entry.length;
+    }
+
+    /**
+     * @return the index of the non-empty text leaf containing the given offset
+     */
+    public synchronized int indexAt(int offset) {
+        if (offset < 0 || offset >= length(tree)) {
+            throw new IndexOutOfBoundsException(Integer.toString(offset));
+        }
+        int index = 0;
+        Entry entry = tree;
+        while (true) {
+            final int left = length(entry.left);
+            if (offset < left) {
+                entry = entry.left;
+            } else if (offset < left + entry.length) {
+                return index + size(entry.left);
+            } else {
+                offset -= left + entry.length;
+                index += size(entry.left) + 1;
+                entry = entry.right;
+            }
+        }
+    }
+
+    public Text getTextAt(int offset) {
+        return getText(indexAt(offset));
+    }
+
+    /**
+     * @return the offset of the given text leaf or <code>-1</code> if it is
+     *         not part of the tree
+     */
+    public synchronized int getOffset(Text text) {
+        final Entry entry = entries.get(text.node.getId());
+        return (entry == null ? -1 : start(entry));
+    }
+
+    private Entry entryAt(int index) {
+        if (index < 0 || index >= size(tree)) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        Entry entry = tree;
+        while (true) {
+            final int left = size(entry.left);
+            if (index < left) {
+                entry = entry.left;
+            } else if (index == left) {
+                return entry;
+            } else {
+                index -= left + 1;
+                entry = entry.right;
+            }
+        }
+    }
+
+    private static int start(Entry entry) {
+        int start = length(entry.left);
+        for (Entry child = entry, parent = entry.parent; parent != null; child = parent, parent = parent.parent) {
+            if (child == parent.right) {
+                start += length(parent.left) + parent.length;
+            }
+        }
+        return start;
+    }
+
+    private static int rank(Entry entry) {
+        int rank = size(entry.left);
+        for (Entry child = entry, parent = entry.parent; parent != null; child = parent, parent = parent.parent) {
+            if (child == parent.right) {
+                rank += size(parent.left) + 1;
+            }
+        }
+        return rank;
+    }
+
+    private Entry entries(List<Text> texts) {
+        Entry sequence = null;
+        for (Text text : texts) {
+            final Entry entry = new Entry(text.node.getId(), text.getLength(), priorities.nextInt());
+            entries.put(entry.id, entry);
+            sequence = merge(sequence, entry);
+        }
+        return sequence;
+    }
+
+    private void setTree(Entry tree) {
+        this.tree = tree;
+        if (tree != null) {
+            tree.parent = null;
+        }
+    }
+
+    private synchronized void inserted(GoddagTreeNode child) {
+        final int index = insertionIndex(child);
+        if (index < 0) {
+            return;
+        }
+        final List<Text> texts = new ArrayList<Text>();
+        collect(child, texts);
+        if (texts.isEmpty()) {
+            return;
+        }
+        final Entry[] split = new Entry[2];
+        split(tree, index, split);
+        setTree(merge(merge(split[0], entries(texts)), split[1]));
+    }
+
+    private synchronized void removed(GoddagTreeNode child) {
+        final List<Text> texts = new ArrayList<Text>();
+        collect(child, texts);
+        if (texts.isEmpty()) {
+            return;
+        }
+        final Entry first = entries.get(texts.get(0).node.getId());
+        if (first == null) {
+            return;
+        }
+        final Entry[] head = new Entry[2];
+        split(tree, rank(first), head);
+        final Entry[] tail = new Entry[2];
+        split(head[1], texts.size(), tail);
+        for (Text text : texts) {
+            entries.remove(text.node.getId());
+        }
+        setTree(merge(head[0], tail[1]));
+    }
+
+    private synchronized void textChanged(Text text) {
+        final Entry entry = entries.get(text.node.getId());
+        if (entry != null) {
+            entry.length = text.getLength();
+            for (Entry e = entry; e != null; e = e.parent) {
+                e.sum = length(e.left) + e.length + length(e.right);
+            }
+        }
+    }
+
+    private void collect(GoddagTreeNode node, List<Text> texts) {
+        if (node instanceof Text) {
+            texts.add((Text) node);
+        } else {
+            for (GoddagTreeNode descendant : node.getDescendants(root)) {
+                if (descendant instanceof Text) {
+                    texts.add((Text) descendant);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index the texts of the given node are to be inserted at or
+     *         <code>-1</code> if the node is not attached to the root yet
+     */
+    private int insertionIndex(GoddagTreeNode node) {
+        GoddagTreeNode current = node;
+        while (true) {
+            for (GoddagTreeNode sibling = current.getPreviousSibling(root); sibling != null; sibling = sibling
+                    .getPreviousSibling(root)) {
+                final Entry last = lastEntry(sibling);
+                if (last != null) {
+                    return rank(last) + 1;
+                }
+            }
+            final GoddagTreeNode parent = current.getParent(root);
+            if (parent == null) {
+                return (current.equals(root) ? 0 : -1);
+            }
+            current = parent;
+        }
+    }
+
+    private Entry lastEntry(GoddagTreeNode node) {
+        if (node instanceof Text) {
+            return entries.get(node.node.getId());
+        }
+        for (GoddagTreeNode child = node.getLastChild(root); child != null; child = child.getPreviousSibling(root)) {
+            final Entry last = lastEntry(child);
+            if (last != null) {
+                return last;
+            }
+        }
+        return null;
+    }
+
+    private static int size(Entry entry) {
+        return (entry == null ? 0 : entry.size);
+    }
+
+    private static int length(Entry entry) {
+        return (entry == null ? 0 : entry.sum);
+    }
+
+    private static Entry update(Entry entry) {
+        entry.size = size(entry.left) + 1 + size(entry.right);
+        entry.sum = length(entry.left) + entry.length + length(entry.right);
+        if (entry.left != null) {
+            entry.left.parent = entry;
+        }
+        if (entry.right != null) {
+            entry.right.parent = entry;
+        }
+        return entry;
+    }
+
+    private static Entry merge(Entry left, Entry right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    /**
+     * Splits off the first <code>count</code> entries of the given treap into
+     * <code>split[0]</code> and the remaining ones into <code>split[1]</code>.
+     */
+    private static void split(Entry entry, int count, Entry[] split) {
+        if (entry == null) {
+            split[0] = split[1] = null;
+        } else if (size(entry.left) >= count) {
+            split(entry.left, count, split);
+            entry.left = split[1];
+            split[1] = update(entry);
+        } else {
+            split(entry.right, count - size(entry.left) - 1, split);
+            entry.right = split[0];
+            split[0] = update(entry);
+        }
+    }
+
+    private static class Entry {
+        private final long id;
+        private final int priority;
+        private int length;
+        private int size = 1;
+        private int sum;
+        private Entry left;
+        private Entry right;
+        private Entry parent;
+
+        private Entry(long id, int length, int priority) {
+            this.id = id;
+            this.length = length;
+            this.sum = length;
+            this.priority = priority;
+        }
+    }
+
+    private static class Updater extends RootListener<TextOffsetIndex> {
+
+        private Updater(TextOffsetIndex index) {
+            super(index.root, index);
+        }
+
+        public void inserted(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            final TextOffsetIndex target = view(root);
+            if (target != null) {
+                target.inserted(child);
+            }
+        }
+
+        public void removed(Element root, GoddagTreeNode parent, GoddagTreeNode child) {
+            final TextOffsetIndex target = view(root);
+            if (target != null) {
+                target.removed(child);
+            }
+        }
+
+        public void textChanged(Text text) {
+            final TextOffsetIndex target = view(text);
+            if (target != null) {
+                target.textChanged(text);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * One contiguous character store for the texts of all roots of a
+ * {@link MultiRootedTree}, to which texts created via {@link #append(String)}
+ * refer by range. Appends are written through; instances keep no other state,
+ * so any number of them may append to the same store.
+ */
+public class TextStore {
+    static final RelationshipType RELATION = new RelationshipType() {
+
+        public String name() {
+            return GoddagNode.PREFIX + ".store";
+        }
+    };
+
+    private final Node node;
+
+    TextStore(Node node) {
+        this.node = node;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public int getLength() {
+        return (Integer) node.getProperty(Text.LENGTH, 0);
+    }
+
+    public Text append(String content) {
+        final int offset = getLength();
+        int chunk = offset / Text.CHUNK_SIZE;
+        final int chunkStart = chunk * Text.CHUNK_SIZE;
+        final String appended = (chunkStart < offset ? (String) node.getProperty(Text.CHUNK + chunk) + content : content);
+        for (int start = 0; start < appended.length(); start += Text.CHUNK_SIZE, chunk++) {
+            final int end = Math.min(start + Text.CHUNK_SIZE, appended.length());
+            node.setProperty(Text.CHUNK + chunk, appended.substring(start, end));
+        }
+        node.setProperty(Text.LENGTH, offset + content.length());
+        return new Text(node.getGraphDatabase(), node, offset, content.length());
+    }
+
+    public String getText(int from, int to) {
+        if (from < 0 || to > getLength() || from > to) {
+            throw new IndexOutOfBoundsException(from + " - " + to);
+        }
+        return Text.readChunks(node, from, to);
+    }
+
+    /**
+     * Reads the text as one range if the leaves refer to consecutive ranges
+     * of this store, as texts appended in document order do, and falls back to
+     * {@link GoddagTreeNode#getText(Element)} otherwise.
+     */
+    public String getText(Element root, GoddagTreeNode treeNode) {
+        final Iterable<GoddagTreeNode> leaves = (treeNode instanceof Text ? Collections.singleton(treeNode) : treeNode
+                .getDescendants(root));
+        int start = -1;
+        int end = -1;
+        for (GoddagTreeNode leaf : leaves) {
+            if (leaf instanceof Text) {
+                final Text text = (Text) leaf;
+                if (!node.equals(text.getSource()) || (end >= 0 && text.getOffset() != end)) {
+                    return treeNode.getText(root);
+                }
+                if (start < 0) {
+                    start = text.getOffset();
+                }
+                end = text.getOffset() + text.getLength();
+            }
+        }
+        return (start < 0 ? "" : getText(start, end));
+    }
+
+    public void write(Writer out) throws IOException {
+        final int length = getLength();
+        for (int chunk = 0; chunk * Text.CHUNK_SIZE < length; chunk++) {
+            out.write((String) node.getProperty(Text.CHUNK + chunk));
+        }
+    }
+}
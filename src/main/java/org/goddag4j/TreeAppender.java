@@ -0,0 +1,78 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * Appends children to a parent in a particular tree, remembering the current
+ * last child and its edge to the parent between calls. Appending thereby only
+ * creates the required edges without looking up any existing ones.
+ * <p>
+ * Appended nodes must not have a parent in the tree yet and the children of
+ * the parent must not be modified by other means while the appender is used.
+ */
+public class TreeAppender {
+    private final Element root;
+    private final GoddagTreeNode parent;
+    private GoddagTreeNode last;
+    private Relationship lastEdge;
+
+    public TreeAppender(Element root, GoddagTreeNode parent) {
+        this.root = root;
+        this.parent = parent;
+        this.lastEdge = GoddagEdge.find(parent.node, GoddagEdge.IS_LAST_CHILD_OF, INCOMING, root);
+        this.last = (lastEdge == null ? null : GoddagTreeNode.adjacentTreeNode(lastEdge, GoddagEdge.IS_LAST_CHILD_OF,
+                INCOMING, root));
+    }
+
+    public Element getRoot() {
+        return root;
+    }
+
+    public GoddagTreeNode getParent() {
+        return parent;
+    }
+
+    public GoddagTreeNode getLast() {
+        return last;
+    }
+
+    public <T extends GoddagTreeNode> T append(T child) {
+        assert child.getParent(root) == null;
+
+        if (last == null) {
+            GoddagEdge.add(GoddagEdge.HAS_FIRST_CHILD, parent, child, root);
+        } else {
+            GoddagEdge.add(GoddagEdge.HAS_SIBLING, last, child, root);
+            lastEdge.delete();
+        }
+        lastEdge = GoddagEdge.add(GoddagEdge.IS_LAST_CHILD_OF, child, parent, root);
+        GoddagEdge.add(GoddagEdge.CONTAINS, parent, child, root);
+
+        last = child;
+        GoddagTreeNode.fireInserted(root, parent, child);
+        return child;
+    }
+}
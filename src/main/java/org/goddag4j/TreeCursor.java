@@ -0,0 +1,200 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j;
+
+import static org.neo4j.graphdb.Direction.INCOMING;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * Reusable position in a tree, for traversals that must not create a node
+ * wrapper per visited node. Moves return <code>false</code> and leave the
+ * cursor in place if there is no node to move to.
+ * <p>
+ * {@link #nextDescendant()} walks the subtree of the node the cursor was
+ * last positioned on explicitly in document order; any other move ends such
+ * a walk. Cursors are not thread-safe.
+ */
+public class TreeCursor {
+    private final Element root;
+    private final GraphDatabaseService db;
+    private final LongStack path = new LongStack();
+    private Node current;
+    private GoddagNode.NodeType currentType;
+    private Relationship edge;
+    private GoddagEdge edgeType;
+    private Direction direction;
+
+    public TreeCursor(Element root) {
+        this(root, root);
+    }
+
+    public TreeCursor(Element root, GoddagTreeNode start) {
+        this.root = root;
+        this.db = root.node.getGraphDatabase();
+        reset(start.node);
+    }
+
+    public Element getRoot() {
+        return root;
+    }
+
+    public TreeCursor reset(GoddagTreeNode node) {
+        return reset(node.node);
+    }
+
+    public TreeCursor reset(long id) {
+        return reset(db.getNodeById(id));
+    }
+
+    private TreeCursor reset(Node node) {
+        this.current = node;
+        this.currentType = null;
+        this.edge = null;
+        this.path.clear();
+        return this;
+    }
+
+    public long getId() {
+        return current.getId();
+    }
+
+    public Node getNode() {
+        return current;
+    }
+
+    /**
+     * Takes the type of the current node from the edge the cursor moved along
+     * if that edge records it; only reads the node otherwise.
+     */
+    public GoddagNode.NodeType getNodeType() {
+        if (currentType == null) {
+            currentType = (edge == null ? GoddagNode.getNodeType(current) : GoddagEdge.getAdjacentType(edge, edgeType,
+                    direction, root));
+        }
+        return currentType;
+    }
+
+    public GoddagTreeNode get() {
+        return (GoddagTreeNode) GoddagNode.wrap(current, getNodeType());
+    }
+
+    /**
+     * @return the number of levels the current node is below the node the
+     *         current descendant walk started at
+     */
+    public int getDepth() {
+        return path.size();
+    }
+
+    public boolean toParent() {
+        return explicitMove(GoddagEdge.CONTAINS, INCOMING);
+    }
+
+    public boolean toFirstChild() {
+        return explicitMove(GoddagEdge.HAS_FIRST_CHILD, OUTGOING);
+    }
+
+    public boolean toLastChild() {
+        return explicitMove(GoddagEdge.IS_LAST_CHILD_OF, INCOMING);
+    }
+
+    public boolean toNextSibling() {
+        return explicitMove(GoddagEdge.HAS_SIBLING, OUTGOING);
+    }
+
+    public boolean toPreviousSibling() {
+        return explicitMove(GoddagEdge.HAS_SIBLING, INCOMING);
+    }
+
+    public boolean nextDescendant() {
+        final long id = current.getId();
+        if (move(GoddagEdge.HAS_FIRST_CHILD, OUTGOING)) {
+            path.push(id);
+            return true;
+        }
+        while (!path.isEmpty()) {
+            if (move(GoddagEdge.HAS_SIBLING, OUTGOING)) {
+                return true;
+            }
+            current = db.getNodeById(path.pop());
+            currentType = GoddagNode.NodeType.ELEMENT;
+            edge = null;
+        }
+        return false;
+    }
+
+    private boolean explicitMove(GoddagEdge edge, Direction direction) {
+        if (move(edge, direction)) {
+            path.clear();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean move(GoddagEdge edge, Direction direction) {
+        final Relationship r = GoddagEdge.find(current, edge, direction, root);
+        if (r == null) {
+            return false;
+        }
+        current = (direction == INCOMING ? r.getStartNode() : r.getEndNode());
+        currentType = null;
+        this.edge = r;
+        this.edgeType = edge;
+        this.direction = direction;
+        return true;
+    }
+
+    private static class LongStack {
+        private long[] elements = new long[16];
+        private int size;
+
+        private void push(long element) {
+            if (size == elements.length) {
+                final long[] resized = new long[size * 2];
+                System.arraycopy(elements, 0, resized, 0, size);
+                elements = resized;
+            }
+            elements[size++] = element;
+        }
+
+        private long pop() {
+            return elements[--size];
+        }
+
+        private boolean isEmpty() {
+            return (size == 0);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
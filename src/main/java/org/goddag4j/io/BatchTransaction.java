@@ -0,0 +1,72 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Transaction of an import which commits each time the given number of
+ * nodes has been created, or does nothing if that number is zero, leaving
+ * all changes to the caller's transaction.
+ */
+class BatchTransaction {
+    private final GraphDatabaseService db;
+    private final int commitInterval;
+
+    private Transaction transaction;
+    private int uncommitted;
+
+    BatchTransaction(GraphDatabaseService db, int commitInterval) {
+        this.db = db;
+        this.commitInterval = commitInterval;
+        if (commitInterval > 0) {
+            transaction = db.beginTx();
+        }
+    }
+
+    void nodeCreated() {
+        if (transaction != null && ++uncommitted >= commitInterval) {
+            transaction.success();
+            transaction.finish();
+            transaction = db.beginTx();
+            uncommitted = 0;
+        }
+    }
+
+    void success() {
+        if (transaction != null) {
+            transaction.success();
+        }
+    }
+
+    /**
+     * Commits the current batch if {@link #success()} has been called and
+     * rolls it back otherwise.
+     */
+    void finish() {
+        if (transaction != null) {
+            transaction.finish();
+            transaction = null;
+        }
+    }
+}
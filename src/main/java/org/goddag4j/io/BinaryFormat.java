@@ -0,0 +1,217 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and primitives of the binary format written by
+ * {@link GoddagBinaryWriter}.
+ * <p>
+ * A file starts with {@link #MAGIC}, a version byte and the namespace
+ * mappings, followed by one section per root, each introduced by
+ * {@link #ROOT}, and a final {@link #END}. A section holds the entries of
+ * its tree in document order. An entry is a varint which is zero for the end
+ * of a child list and otherwise the node id shifted left by two, or-ed with
+ * {@link #NEW} and {@link #SHARED} flags, plus one. Entries of new nodes are
+ * followed by the node type and payload; every entry is followed by its
+ * children. Names are given as indices into a string table that grows as the
+ * file is read, with index zero introducing a new entry inline.
+ */
+class BinaryFormat {
+    static final byte[] MAGIC = { 'G', 'D', 'D', 'G' };
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int ROOT = 1;
+
+    static final long NEW = 1;
+    static final long SHARED = 2;
+
+    static final String UTF8 = "UTF-8";
+
+    /**
+     * Unsynchronized output buffer; {@link java.io.BufferedOutputStream}
+     * synchronizes every single byte written.
+     */
+    static class Output {
+        private final OutputStream out;
+        private final byte[] buf = new byte[65536];
+        private int position;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(int b) throws IOException {
+            if (position == buf.length) {
+                flushBuffer();
+            }
+            buf[position++] = (byte) b;
+        }
+
+        void write(byte[] b) throws IOException {
+            if (b.length > buf.length - position) {
+                flushBuffer();
+                if (b.length > buf.length) {
+                    out.write(b);
+                    return;
+                }
+            }
+            System.arraycopy(b, 0, buf, position, b.length);
+            position += b.length;
+        }
+
+        void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String str) throws IOException {
+            final byte[] bytes = str.getBytes(UTF8);
+            writeVarint(bytes.length);
+            write(bytes);
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, position);
+            position = 0;
+        }
+    }
+
+    static abstract class Input {
+        private byte[] buf = new byte[256];
+
+        abstract int read() throws IOException;
+
+        abstract void readFully(byte[] b, int length) throws IOException;
+
+        int readByte() throws IOException {
+            final int b = read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString() throws IOException {
+            final int length = (int) readVarint();
+            if (length > buf.length) {
+                buf = new byte[Math.max(length, buf.length * 2)];
+            }
+            readFully(buf, length);
+            return new String(buf, 0, length, UTF8);
+        }
+    }
+
+    /**
+     * Unsynchronized input buffer; {@link java.io.BufferedInputStream}
+     * synchronizes every single byte read.
+     */
+    static class StreamInput extends Input {
+        private final InputStream in;
+        private final byte[] bytes = new byte[65536];
+        private int position;
+        private int limit;
+
+        StreamInput(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        int read() throws IOException {
+            if (position == limit && !fillBuffer()) {
+                return -1;
+            }
+            return (bytes[position++] & 0xFF);
+        }
+
+        @Override
+        void readFully(byte[] b, int length) throws IOException {
+            int read = 0;
+            while (read < length) {
+                if (position == limit && !fillBuffer()) {
+                    throw new EOFException();
+                }
+                final int count = Math.min(length - read, limit - position);
+                System.arraycopy(bytes, position, b, read, count);
+                position += count;
+                read += count;
+            }
+        }
+
+        private boolean fillBuffer() throws IOException {
+            final int count = in.read(bytes, 0, bytes.length);
+            if (count <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = count;
+            return true;
+        }
+    }
+
+    static class BufferInput extends Input {
+        private final ByteBuffer buffer;
+
+        BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int read() {
+            return (buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1);
+        }
+
+        @Override
+        void readFully(byte[] b, int length) throws IOException {
+            if (buffer.remaining() < length) {
+                throw new EOFException();
+            }
+            buffer.get(b, 0, length);
+        }
+    }
+}
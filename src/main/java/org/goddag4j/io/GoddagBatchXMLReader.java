@@ -0,0 +1,194 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+
+import org.goddag4j.Attribute;
+import org.goddag4j.Comment;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagNode.NodeType;
+import org.goddag4j.ProcessingInstruction;
+import org.goddag4j.Text;
+import org.neo4j.kernel.impl.batchinsert.BatchInserter;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Imports XML into a store opened by a {@link BatchInserter}, producing the
+ * same graph as {@link GoddagXMLReader}. The first and last child of all open
+ * elements are tracked on a stack, so the tree edges can be written in
+ * document order without reading anything back from the store.
+ */
+public class GoddagBatchXMLReader extends DefaultHandler2 {
+
+    private final BatchInserter inserter;
+    private final Map<URI, String> namespaces;
+    private final GoddagEdge.Encoding edgeEncoding;
+
+    private StringBuilder characterData;
+    private List<OpenElement> childAxis;
+    private long result;
+
+    public GoddagBatchXMLReader(BatchInserter inserter, Map<URI, String> namespaces) {
+        this(inserter, namespaces, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public GoddagBatchXMLReader(BatchInserter inserter, Map<URI, String> namespaces, GoddagEdge.Encoding edgeEncoding) {
+        this.inserter = inserter;
+        this.namespaces = namespaces;
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    public long parse(InputSource source) throws SAXException, IOException {
+        final XMLReader reader = XMLReaderFactory.createXMLReader();
+        attachTo(reader);
+        reader.parse(source);
+        return result;
+    }
+
+    public void attachTo(XMLReader xmlReader) throws SAXException {
+        xmlReader.setFeature("http://xml.org/sax/features/namespaces", true);
+        xmlReader.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+        xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", this);
+        xmlReader.setContentHandler(this);
+    }
+
+    public long result() {
+        return result;
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        childAxis = new ArrayList<OpenElement>();
+        result = -1;
+        characterData = new StringBuilder();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException {
+        final String elementPrefix = GoddagXMLReader.getPrefix(namespaces, uri, null);
+
+        final long element;
+        if (childAxis.isEmpty()) {
+            element = inserter.createNode(Element.rootProperties(elementPrefix, localName, edgeEncoding));
+            result = element;
+        } else {
+            createTextNode();
+            element = inserter.createNode(Element.properties(elementPrefix, localName));
+            append(element, NodeType.ELEMENT);
+        }
+
+        final Map<String, String[]> attributes = new LinkedHashMap<String, String[]>();
+        for (int ac = 0; ac < attrs.getLength(); ac++) {
+            if (GoddagTreeBuilder.isNamespaceDeclaration(attrs.getQName(ac))) {
+                continue;
+            }
+            String attrUri = attrs.getURI(ac);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attrUri)) {
+                continue;
+            }
+            final String attrPrefix = GoddagXMLReader.getPrefix(namespaces, attrUri, elementPrefix);
+            final String attrName = attrs.getLocalName(ac);
+            attributes.put(Element.getQName(attrPrefix, attrName), new String[] { attrPrefix, attrName, attrs.getValue(ac) });
+        }
+        for (String[] attr : attributes.values()) {
+            final long attribute = inserter.createNode(Attribute.properties(attr[0], attr[1], attr[2]));
+            inserter.createRelationship(element, attribute, GoddagEdge.HAS_ATTRIBUTE, null);
+        }
+
+        childAxis.add(new OpenElement(element));
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        createTextNode();
+        final OpenElement closed = childAxis.remove(childAxis.size() - 1);
+        if (closed.lastChild >= 0) {
+            edgeEncoding.add(inserter, GoddagEdge.IS_LAST_CHILD_OF, closed.lastChild, closed.lastChildType, closed.node,
+                    NodeType.ELEMENT, result);
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        if (!childAxis.isEmpty()) {
+            createTextNode();
+            append(inserter.createNode(ProcessingInstruction.properties(target, data)), NodeType.PI);
+        }
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+        if (!childAxis.isEmpty()) {
+            createTextNode();
+            append(inserter.createNode(Comment.properties(new String(ch, start, length))), NodeType.COMMENT);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        characterData.append(ch, start, length);
+    }
+
+    private void createTextNode() {
+        if (characterData.length() > 0) {
+            append(inserter.createNode(Text.properties(characterData.toString())), NodeType.TEXT);
+            characterData = new StringBuilder();
+        }
+    }
+
+    private void append(long child, NodeType childType) {
+        final OpenElement parent = childAxis.get(childAxis.size() - 1);
+        if (parent.lastChild < 0) {
+            edgeEncoding.add(inserter, GoddagEdge.HAS_FIRST_CHILD, parent.node, NodeType.ELEMENT, child, childType, result);
+        } else {
+            edgeEncoding.add(inserter, GoddagEdge.HAS_SIBLING, parent.lastChild, parent.lastChildType, child, childType,
+                    result);
+        }
+        edgeEncoding.add(inserter, GoddagEdge.CONTAINS, parent.node, NodeType.ELEMENT, child, childType, result);
+        parent.lastChild = child;
+        parent.lastChildType = childType;
+    }
+
+    private static class OpenElement {
+        private final long node;
+        private long lastChild = -1;
+        private NodeType lastChildType;
+
+        private OpenElement(long node) {
+            this.node = node;
+        }
+    }
+}
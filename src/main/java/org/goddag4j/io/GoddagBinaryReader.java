@@ -0,0 +1,217 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.goddag4j.Comment;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagNode;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.ProcessingInstruction;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Reads trees written by {@link GoddagBinaryWriter}, creating new nodes for
+ * them. Only the ids of nodes shared between trees are remembered while
+ * reading.
+ */
+public class GoddagBinaryReader {
+    private final GraphDatabaseService db;
+    private final GoddagEdge.Encoding edgeEncoding;
+    private int commitInterval = 0;
+
+    private BinaryFormat.Input in;
+    private List<String> strings;
+    private NodeIdMap sharedNodes;
+    private Map<URI, String> namespaces;
+    private BatchTransaction transaction;
+
+    public GoddagBinaryReader(GraphDatabaseService db) {
+        this(db, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public GoddagBinaryReader(GraphDatabaseService db, GoddagEdge.Encoding edgeEncoding) {
+        this.db = db;
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /**
+     * @see GoddagXMLReader#setCommitInterval(int)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public Map<URI, String> getNamespaces() {
+        return namespaces;
+    }
+
+    public List<Element> read(InputStream in) throws IOException {
+        return read(new BinaryFormat.StreamInput(in));
+    }
+
+    /**
+     * Reads a file by mapping it into memory, unless it is too large to be
+     * mapped as a whole.
+     */
+    public List<Element> read(File file) throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                return read(in);
+            }
+            return read(new BinaryFormat.BufferInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        } finally {
+            in.close();
+        }
+    }
+
+    private List<Element> read(BinaryFormat.Input in) throws IOException {
+        this.in = in;
+        this.strings = new ArrayList<String>();
+        this.sharedNodes = new NodeIdMap();
+        this.transaction = new BatchTransaction(db, commitInterval);
+        try {
+            final byte[] magic = new byte[BinaryFormat.MAGIC.length];
+            in.readFully(magic, magic.length);
+            if (!Arrays.equals(BinaryFormat.MAGIC, magic)) {
+                throw new IOException("Not a GODDAG binary file");
+            }
+            final int version = in.readByte();
+            if (version != BinaryFormat.VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+
+            namespaces = new LinkedHashMap<URI, String>();
+            for (long nc = in.readVarint(); nc > 0; nc--) {
+                final String prefix = in.readString();
+                namespaces.put(URI.create(in.readString()), prefix);
+            }
+
+            final List<Element> roots = new ArrayList<Element>();
+            for (int section = in.readByte(); section != BinaryFormat.END; section = in.readByte()) {
+                if (section != BinaryFormat.ROOT) {
+                    throw new IOException("Unexpected section " + section);
+                }
+                roots.add((Element) readEntry(null, null, in.readVarint() - 1));
+            }
+
+            transaction.success();
+            return roots;
+        } finally {
+            transaction.finish();
+            this.transaction = null;
+            this.in = null;
+            this.strings = null;
+            this.sharedNodes = null;
+        }
+    }
+
+    private GoddagTreeNode readEntry(Element root, TreeAppender parent, long entry) throws IOException {
+        final long id = entry >>> 2;
+        final GoddagTreeNode node;
+        if ((entry & BinaryFormat.NEW) != 0) {
+            node = readNode();
+            if ((entry & BinaryFormat.SHARED) != 0) {
+                sharedNodes.put(id, node.node.getId());
+            }
+        } else {
+            final long nodeId = sharedNodes.get(id);
+            if (nodeId < 0) {
+                throw new IOException("Reference to unknown node " + id);
+            }
+            node = (GoddagTreeNode) GoddagNode.wrap(db.getNodeById(nodeId));
+        }
+
+        if (root == null) {
+            root = (Element) node;
+            root.setEdgeEncoding(edgeEncoding);
+        } else {
+            parent.append(node);
+        }
+
+        TreeAppender children = null;
+        for (long child = in.readVarint(); child != 0; child = in.readVarint()) {
+            if (children == null) {
+                children = new TreeAppender(root, node);
+            }
+            readEntry(root, children, child - 1);
+        }
+        return node;
+    }
+
+    private GoddagTreeNode readNode() throws IOException {
+        final GoddagNode.NodeType nt = GoddagNode.NODE_TYPES[in.readByte()];
+        final GoddagTreeNode node;
+        switch (nt) {
+        case TEXT:
+            node = new Text(db, in.readString());
+            break;
+        case ELEMENT:
+            final Element element = new Element(db, readName(), readName());
+            for (long ac = in.readVarint(); ac > 0; ac--) {
+                element.setAttribute(readName(), readName(), in.readString());
+            }
+            node = element;
+            break;
+        case COMMENT:
+            node = new Comment(db, in.readString());
+            break;
+        case PI:
+            node = new ProcessingInstruction(db, readName(), in.readString());
+            break;
+        default:
+            throw new IOException("Unexpected node type " + nt);
+        }
+
+        transaction.nodeCreated();
+        return node;
+    }
+
+    private String readName() throws IOException {
+        final long index = in.readVarint();
+        if (index == 0) {
+            final String name = in.readString();
+            strings.add(name);
+            return name;
+        }
+        return strings.get((int) index - 1);
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import static org.neo4j.graphdb.Direction.INCOMING;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.goddag4j.Attribute;
+import org.goddag4j.Comment;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagNode.NodeType;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.ProcessingInstruction;
+import org.goddag4j.Text;
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * Writes trees in a compact binary format, read by
+ * {@link GoddagBinaryReader}, in a single pass over each tree. Nodes
+ * contained in more than one tree are written once, and referred to by id
+ * afterwards.
+ */
+public class GoddagBinaryWriter {
+    private final Map<URI, String> namespaces;
+
+    private BinaryFormat.Output out;
+    private Map<String, Integer> strings;
+    private NodeIdSet written;
+    private boolean multipleRoots;
+
+    public GoddagBinaryWriter(Map<URI, String> namespaces) {
+        this.namespaces = namespaces;
+    }
+
+    public void write(Iterable<Element> roots, OutputStream out) throws IOException {
+        final List<Element> rootList = new ArrayList<Element>();
+        for (Element root : roots) {
+            rootList.add(root);
+        }
+
+        this.out = new BinaryFormat.Output(out);
+        this.strings = new HashMap<String, Integer>();
+        this.written = new NodeIdSet();
+        this.multipleRoots = rootList.size() > 1;
+        try {
+            this.out.write(BinaryFormat.MAGIC);
+            this.out.write(BinaryFormat.VERSION);
+            this.out.writeVarint(namespaces.size());
+            for (Map.Entry<URI, String> ns : namespaces.entrySet()) {
+                this.out.writeString(ns.getValue());
+                this.out.writeString(ns.getKey().toString());
+            }
+
+            for (Element root : rootList) {
+                this.out.write(BinaryFormat.ROOT);
+                writeEntry(root, root);
+            }
+            this.out.write(BinaryFormat.END);
+            this.out.flush();
+        } finally {
+            this.out = null;
+            this.strings = null;
+            this.written = null;
+        }
+    }
+
+    private void writeEntry(Element root, GoddagTreeNode node) throws IOException {
+        final long id = node.node.getId();
+        final boolean isNew = written.add(id);
+        long entry = id << 2;
+        if (isNew) {
+            entry |= BinaryFormat.NEW;
+            if (multipleRoots && isShared(root, node)) {
+                entry |= BinaryFormat.SHARED;
+            }
+        }
+        out.writeVarint(entry + 1);
+
+        if (isNew) {
+            final NodeType nt = node.getNodeType();
+            out.write(nt.ordinal());
+            switch (nt) {
+            case TEXT:
+                out.writeString(((Text) node).getText());
+                break;
+            case ELEMENT:
+                final Element element = (Element) node;
+                writeName(element.getPrefix());
+                writeName(element.getName());
+                final List<Attribute> attributes = new ArrayList<Attribute>();
+                for (Attribute attribute : element.getAttributes()) {
+                    attributes.add(attribute);
+                }
+                out.writeVarint(attributes.size());
+                for (Attribute attribute : attributes) {
+                    writeName(attribute.getPrefix());
+                    writeName(attribute.getName());
+                    out.writeString(attribute.getValue());
+                }
+                break;
+            case COMMENT:
+                out.writeString(((Comment) node).getContent());
+                break;
+            case PI:
+                final ProcessingInstruction pi = (ProcessingInstruction) node;
+                writeName(pi.getTarget());
+                out.writeString(pi.getInstruction());
+                break;
+            }
+        }
+
+        for (GoddagTreeNode child : node.getChildren(root)) {
+            writeEntry(root, child);
+        }
+        out.writeVarint(0);
+    }
+
+    private void writeName(String name) throws IOException {
+        final Integer index = strings.get(name);
+        if (index == null) {
+            strings.put(name, strings.size() + 1);
+            out.writeVarint(0);
+            out.writeString(name);
+        } else {
+            out.writeVarint(index);
+        }
+    }
+
+    private static boolean isShared(Element root, GoddagTreeNode node) {
+        int trees = (node.equals(root) ? 1 : 0);
+        for (Relationship r : node.node.getRelationships(INCOMING)) {
+            if (GoddagEdge.CONTAINS.includes(r.getType()) && ++trees > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
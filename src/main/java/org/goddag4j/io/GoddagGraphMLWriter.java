@@ -34,9 +34,13 @@ import org.goddag4j.GoddagNode;
 import org.goddag4j.GoddagNode.NodeType;
 import org.goddag4j.GoddagTreeNode;
 import org.goddag4j.Text;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipExpander;
 import org.neo4j.graphdb.traversal.TraversalDescription;
+import org.neo4j.helpers.Predicate;
+import org.neo4j.helpers.collection.FilteringIterable;
 import org.neo4j.kernel.Traversal;
 import org.neo4j.kernel.Uniqueness;
 import org.xml.sax.SAXException;
@@ -189,6 +193,27 @@ public class GoddagGraphMLWriter extends BaseXMLReader {
     }
 
     protected TraversalDescription createTraversalDescription() {
-        return Traversal.description().relationships(GoddagEdge.CONTAINS);
+        return Traversal.description().expand(new ContainmentExpander(Direction.BOTH));
+    }
+
+    private static class ContainmentExpander implements RelationshipExpander {
+        private final Direction direction;
+
+        private ContainmentExpander(Direction direction) {
+            this.direction = direction;
+        }
+
+        public Iterable<Relationship> expand(Node node) {
+            return new FilteringIterable<Relationship>(node.getRelationships(direction), new Predicate<Relationship>() {
+
+                public boolean accept(Relationship item) {
+                    return GoddagEdge.CONTAINS.includes(item.getType());
+                }
+            });
+        }
+
+        public RelationshipExpander reversed() {
+            return new ContainmentExpander(direction.reverse());
+        }
     }
 }
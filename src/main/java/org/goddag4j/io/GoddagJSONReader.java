@@ -0,0 +1,250 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.goddag4j.Comment;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagNode;
+import org.goddag4j.GoddagNode.NodeType;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.ProcessingInstruction;
+import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+
+/**
+ * Reads the output of {@link GoddagJSONWriter}, in either mode, creating new
+ * nodes for it. Nodes are created as soon as the tree structure refers to
+ * them and receive their payload once it is read, inline or from the node
+ * table, so the input is only parsed once. Written ids are mapped to the ids
+ * of created nodes in primitive arrays.
+ */
+public class GoddagJSONReader {
+    private final GraphDatabaseService db;
+    private final GoddagEdge.Encoding edgeEncoding;
+    private int commitInterval = 0;
+
+    private JsonParser in;
+    private NodeIdMap nodes;
+    private Map<URI, String> namespaces;
+    private BatchTransaction transaction;
+
+    public GoddagJSONReader(GraphDatabaseService db) {
+        this(db, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public GoddagJSONReader(GraphDatabaseService db, GoddagEdge.Encoding edgeEncoding) {
+        this.db = db;
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /**
+     * @see GoddagXMLReader#setCommitInterval(int)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public Map<URI, String> getNamespaces() {
+        return namespaces;
+    }
+
+    public List<Element> read(JsonParser in) throws IOException {
+        this.in = in;
+        this.nodes = new NodeIdMap();
+        this.namespaces = new LinkedHashMap<URI, String>();
+        this.transaction = new BatchTransaction(db, commitInterval);
+        try {
+            final List<Element> roots = new ArrayList<Element>();
+            expect(in.nextToken(), JsonToken.START_OBJECT);
+            while (in.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = in.getCurrentName();
+                final JsonToken value = in.nextToken();
+                if ("trees".equals(field)) {
+                    expect(value, JsonToken.START_ARRAY);
+                    while (in.nextToken() == JsonToken.START_OBJECT) {
+                        roots.add((Element) readTree(null, null));
+                    }
+                } else if ("nodes".equals(field)) {
+                    expect(value, JsonToken.START_ARRAY);
+                    for (int nt = 0; in.nextToken() == JsonToken.START_ARRAY; nt++) {
+                        while (in.nextToken() == JsonToken.START_ARRAY) {
+                            expect(in.nextToken(), JsonToken.VALUE_NUMBER_INT);
+                            readPayload(existing(in.getLongValue(), GoddagNode.NODE_TYPES[nt]));
+                        }
+                    }
+                } else if ("namespaces".equals(field)) {
+                    expect(value, JsonToken.START_OBJECT);
+                    while (in.nextToken() == JsonToken.FIELD_NAME) {
+                        final String prefix = in.getCurrentName();
+                        in.nextToken();
+                        namespaces.put(URI.create(in.getText()), prefix);
+                    }
+                } else {
+                    in.skipChildren();
+                }
+            }
+
+            transaction.success();
+            return roots;
+        } finally {
+            transaction.finish();
+            this.transaction = null;
+            this.in = null;
+            this.nodes = null;
+        }
+    }
+
+    private GoddagTreeNode readTree(Element root, TreeAppender parent) throws IOException {
+        long id = -1;
+        NodeType nt = null;
+        GoddagTreeNode node = null;
+        while (in.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = in.getCurrentName();
+            final JsonToken value = in.nextToken();
+            if ("id".equals(field)) {
+                id = in.getLongValue();
+            } else if ("nt".equals(field)) {
+                nt = GoddagNode.NODE_TYPES[in.getIntValue()];
+            } else if ("n".equals(field) || "ch".equals(field)) {
+                if (node == null) {
+                    node = attach(root, parent, id, nt);
+                    if (root == null) {
+                        root = (Element) node;
+                    }
+                }
+                if ("n".equals(field)) {
+                    expect(value, JsonToken.START_ARRAY);
+                    in.nextToken();
+                    readPayload(node);
+                } else {
+                    expect(value, JsonToken.START_ARRAY);
+                    final TreeAppender children = new TreeAppender(root, node);
+                    while (in.nextToken() == JsonToken.START_OBJECT) {
+                        readTree(root, children);
+                    }
+                }
+            } else {
+                in.skipChildren();
+            }
+        }
+        return (node == null ? attach(root, parent, id, nt) : node);
+    }
+
+    private GoddagTreeNode attach(Element root, TreeAppender parent, long id, NodeType nt) throws IOException {
+        if (id < 0 || nt == null) {
+            throw new IOException("Tree node without id or type at " + in.getCurrentLocation());
+        }
+        final long nodeId = nodes.get(id);
+        final GoddagTreeNode node;
+        if (nodeId < 0) {
+            final Node created = db.createNode();
+            created.setProperty(GoddagNode.NODE_TYPE_PROPERTY, nt.ordinal());
+            nodes.put(id, created.getId());
+            node = (GoddagTreeNode) GoddagNode.wrap(created, nt);
+            transaction.nodeCreated();
+        } else {
+            node = (GoddagTreeNode) GoddagNode.wrap(db.getNodeById(nodeId), nt);
+        }
+
+        if (root == null) {
+            ((Element) node).setEdgeEncoding(edgeEncoding);
+        } else {
+            parent.append(node);
+        }
+        return node;
+    }
+
+    private GoddagTreeNode existing(long id, NodeType nt) throws IOException {
+        final long nodeId = nodes.get(id);
+        if (nodeId < 0) {
+            throw new IOException("Payload of unknown node " + id + " at " + in.getCurrentLocation());
+        }
+        return (GoddagTreeNode) GoddagNode.wrap(db.getNodeById(nodeId), nt);
+    }
+
+    /**
+     * Reads the payload following the id in a node array, up to and
+     * including the end of the array. Values added by an enhancer are
+     * skipped.
+     */
+    private void readPayload(GoddagTreeNode node) throws IOException {
+        switch (node.getNodeType()) {
+        case TEXT:
+            ((Text) node).setText(nextText());
+            break;
+        case ELEMENT:
+            final Element element = (Element) node;
+            final String[] name = splitQName(nextText());
+            element.setPrefix(name[0]);
+            element.setName(name[1]);
+            expect(in.nextToken(), JsonToken.START_ARRAY);
+            while (in.nextToken() == JsonToken.START_ARRAY) {
+                final String[] attrName = splitQName(nextText());
+                element.setAttribute(attrName[0], attrName[1], nextText());
+                expect(in.nextToken(), JsonToken.END_ARRAY);
+            }
+            break;
+        case COMMENT:
+            ((Comment) node).setContent(nextText());
+            break;
+        case PI:
+            final ProcessingInstruction pi = (ProcessingInstruction) node;
+            pi.setTarget(nextText());
+            pi.setInstruction(nextText());
+            break;
+        }
+        while (in.nextToken() != JsonToken.END_ARRAY) {
+            in.skipChildren();
+        }
+    }
+
+    private String nextText() throws IOException {
+        expect(in.nextToken(), JsonToken.VALUE_STRING);
+        return in.getText();
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " instead of " + actual + " at " + in.getCurrentLocation());
+        }
+    }
+
+    static String[] splitQName(String qName) {
+        final int colon = qName.indexOf(':');
+        return (colon < 0 ? new String[] { "", qName } : new String[] { qName.substring(0, colon), qName.substring(colon + 1) });
+    }
+}
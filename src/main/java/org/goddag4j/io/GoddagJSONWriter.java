@@ -23,19 +23,18 @@ package org.goddag4j.io;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import org.codehaus.jackson.JsonGenerator;
 import org.goddag4j.Attribute;
 import org.goddag4j.Comment;
 import org.goddag4j.Element;
+import org.goddag4j.GoddagNode;
 import org.goddag4j.GoddagNode.NodeType;
 import org.goddag4j.GoddagTreeNode;
 import org.goddag4j.ProcessingInstruction;
 import org.goddag4j.Text;
+import org.neo4j.graphdb.GraphDatabaseService;
 
 public class GoddagJSONWriter {
 
@@ -56,7 +55,9 @@ public class GoddagJSONWriter {
     
     private final Map<URI, String> namespaces;
     private final GoddagJSONEnhancer enhancer;
-    private Map<NodeType, Set<GoddagTreeNode>> writeLog = new HashMap<NodeType, Set<GoddagTreeNode>>();
+    private boolean streaming = false;
+    private NodeIdSet[] writeLog;
+    private NodeIdSet written;
 
     public GoddagJSONWriter(Map<URI, String> namespaces) {
         this(namespaces, NOOP_ENHANCER);
@@ -67,29 +68,49 @@ public class GoddagJSONWriter {
         this.enhancer = enhancer;
     }
 
+    /**
+     * In streaming mode, the payload of a node is written inline, as field
+     * <code>n</code> of the first tree entry referring to it, instead of in a
+     * <code>nodes</code> table after all trees. Either way, the writer only
+     * remembers the ids of the nodes to write, in compact bitmaps.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public void write(Iterable<Element> roots, JsonGenerator out) throws IOException {
-        writeLog.clear();
-        for (NodeType nt : NodeType.values()) {
-            writeLog.put(nt, new HashSet<GoddagTreeNode>());
+        if (streaming) {
+            written = new NodeIdSet();
+        } else {
+            writeLog = new NodeIdSet[GoddagNode.NODE_TYPES.length];
+            for (int nc = 0; nc < writeLog.length; nc++) {
+                writeLog[nc] = new NodeIdSet();
+            }
         }
 
+        GraphDatabaseService db = null;
+
         out.writeStartObject();
 
         out.writeArrayFieldStart("trees");
         for (Element root : roots) {
+            db = root.node.getGraphDatabase();
             writeTree(out, root, root);
         }
         out.writeEndArray();
 
-        out.writeArrayFieldStart("nodes");
-        for (NodeType nt : NodeType.values()) {
-            out.writeStartArray();
-            for (GoddagTreeNode node : writeLog.get(nt)) {
-                writeNode(out, node, nt);
+        if (!streaming) {
+            out.writeArrayFieldStart("nodes");
+            for (NodeType nt : GoddagNode.NODE_TYPES) {
+                out.writeStartArray();
+                final NodeIdSet ids = writeLog[nt.ordinal()];
+                for (long id = ids.next(0); id >= 0; id = ids.next(id + 1)) {
+                    writeNode(out, (GoddagTreeNode) GoddagNode.wrap(db.getNodeById(id), nt), nt);
+                }
+                out.writeEndArray();
             }
             out.writeEndArray();
         }
-        out.writeEndArray();
 
         if (!namespaces.isEmpty()) {
             out.writeObjectFieldStart("namespaces");
@@ -101,16 +122,23 @@ public class GoddagJSONWriter {
 
         enhancer.enhance(out);
         out.writeEndObject();
-        writeLog.clear();
+        writeLog = null;
+        written = null;
     }
 
     private void writeTree(JsonGenerator out, Element root, GoddagTreeNode node) throws IOException {
         final NodeType nt = node.getNodeType();
-        writeLog.get(nt).add(node);
+        final long id = node.node.getId();
 
         out.writeStartObject();
-        out.writeNumberField("id", node.node.getId());
+        out.writeNumberField("id", id);
         out.writeNumberField("nt", nt.ordinal());
+        if (!streaming) {
+            writeLog[nt.ordinal()].add(id);
+        } else if (written.add(id)) {
+            out.writeFieldName("n");
+            writeNode(out, node, nt);
+        }
         if (node.hasChildren(root)) {
             out.writeArrayFieldStart("ch");
             for (GoddagTreeNode child : node.getChildren(root)) {
@@ -0,0 +1,155 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.goddag4j.Element;
+import org.goddag4j.MultiRootedTree;
+
+/**
+ * Exports the roots of a {@link MultiRootedTree} concurrently, one XML
+ * document each. Exports only read and run without transactions.
+ */
+public class GoddagParallelXMLExporter {
+
+    private final Map<URI, String> namespaces;
+    private final ExecutorService executor;
+
+    private boolean wrapText = false;
+
+    public GoddagParallelXMLExporter(Map<URI, String> namespaces, ExecutorService executor) {
+        this.namespaces = namespaces;
+        this.executor = executor;
+    }
+
+    /**
+     * @see GoddagXMLWriter#GoddagXMLWriter(Element, Map, boolean)
+     */
+    public void setWrapText(boolean wrapText) {
+        this.wrapText = wrapText;
+    }
+
+    /**
+     * @return the results in the order of the given roots
+     */
+    public List<Result> exportAll(Iterable<Element> roots, final Target target) throws InterruptedException {
+        final List<Element> rootList = new ArrayList<Element>();
+        final List<Callable<Result>> exports = new ArrayList<Callable<Result>>();
+        for (final Element root : roots) {
+            rootList.add(root);
+            exports.add(new Callable<Result>() {
+
+                public Result call() {
+                    return exportRoot(root, target);
+                }
+            });
+        }
+
+        final List<Result> results = new ArrayList<Result>(exports.size());
+        final Iterator<Element> rootIt = rootList.iterator();
+        for (Future<Result> result : executor.invokeAll(exports)) {
+            final Element root = rootIt.next();
+            try {
+                results.add(result.get());
+            } catch (ExecutionException e) {
+                results.add(new Result(root, 0, e.getCause()));
+            } catch (CancellationException e) {
+                results.add(new Result(root, 0, e));
+            }
+        }
+        return results;
+    }
+
+    protected Result exportRoot(Element root, Target target) {
+        final long start = System.nanoTime();
+        try {
+            final Writer writer = target.open(root);
+            try {
+                final XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+                new GoddagXMLWriter(root, namespaces, wrapText).write(out);
+                out.close();
+            } finally {
+                writer.close();
+            }
+            return new Result(root, System.nanoTime() - start, null);
+        } catch (Throwable t) {
+            return new Result(root, System.nanoTime() - start, t);
+        }
+    }
+
+    /**
+     * Supplies the output for each exported root. Called concurrently from
+     * the workers; the returned writer is closed after the export.
+     */
+    public interface Target {
+        Writer open(Element root) throws IOException;
+    }
+
+    public static class Result {
+        private final Element root;
+        private final long duration;
+        private final Throwable failure;
+
+        private Result(Element root, long duration, Throwable failure) {
+            this.root = root;
+            this.duration = duration;
+            this.failure = failure;
+        }
+
+        public Element getRoot() {
+            return root;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public boolean isSuccessful() {
+            return (failure == null);
+        }
+
+        @Override
+        public String toString() {
+            return root.getQName() + " [" + root.node.getId() + "] (" + (duration / 1000000) + " ms"
+                    + (failure == null ? "" : ", " + failure) + ")";
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.GoddagTreeNode;
+import org.goddag4j.MultiRootedTree;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.xml.sax.InputSource;
+
+/**
+ * Imports independent documents concurrently, each into a new
+ * {@link MultiRootedTree}. Every import runs on a worker of the given executor
+ * in transactions of its own and only touches nodes it created itself, so
+ * workers do not contend for node or relationship locks. With
+ * {@link GoddagEdge.Encoding#ROOT_TYPE} they do contend nevertheless, as
+ * every new root creates relationship types, which Neo4j serializes
+ * globally; hence the default of {@link GoddagEdge.Encoding#ROOT_PROPERTY}.
+ * Linking the resulting trees to existing nodes, e.g. the reference node, is
+ * left to the caller.
+ */
+public class GoddagParallelXMLImporter {
+
+    private final GraphDatabaseService db;
+    private final Map<URI, String> namespaces;
+    private final ExecutorService executor;
+
+    private RelationshipType rootRelation = MultiRootedTree.ROOT_RELATION;
+    private GoddagEdge.Encoding edgeEncoding = GoddagEdge.Encoding.ROOT_PROPERTY;
+    private int commitInterval = 0;
+
+    public GoddagParallelXMLImporter(GraphDatabaseService db, Map<URI, String> namespaces, ExecutorService executor) {
+        this.db = db;
+        this.namespaces = namespaces;
+        this.executor = executor;
+    }
+
+    public void setRootRelation(RelationshipType rootRelation) {
+        this.rootRelation = rootRelation;
+    }
+
+    public void setEdgeEncoding(GoddagEdge.Encoding edgeEncoding) {
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /**
+     * @see GoddagXMLReader#setCommitInterval(int)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @return the results in the order of the given sources
+     */
+    public List<Result> importAll(Collection<InputSource> sources) throws InterruptedException {
+        final List<Callable<Result>> imports = new ArrayList<Callable<Result>>(sources.size());
+        for (final InputSource source : sources) {
+            imports.add(new Callable<Result>() {
+
+                public Result call() {
+                    return importDocument(source);
+                }
+            });
+        }
+
+        final List<Result> results = new ArrayList<Result>(sources.size());
+        final Iterator<InputSource> sourceIt = sources.iterator();
+        for (Future<Result> result : executor.invokeAll(imports)) {
+            final InputSource source = sourceIt.next();
+            try {
+                results.add(result.get());
+            } catch (ExecutionException e) {
+                results.add(new Result(source, null, null, 0, e.getCause()));
+            } catch (CancellationException e) {
+                results.add(new Result(source, null, null, 0, e));
+            }
+        }
+        return results;
+    }
+
+    protected Result importDocument(InputSource source) {
+        final long start = System.nanoTime();
+        final GoddagXMLReader reader = new GoddagXMLReader(db, namespaces, edgeEncoding);
+        reader.setCommitInterval(commitInterval);
+
+        final Transaction tx = (commitInterval == 0 ? db.beginTx() : null);
+        try {
+            final Element root = reader.parse(source);
+
+            final MultiRootedTree tree;
+            final Transaction treeTx = db.beginTx();
+            try {
+                tree = new MultiRootedTree(db.createNode(), rootRelation, edgeEncoding);
+                tree.addRoot(root);
+                treeTx.success();
+            } finally {
+                treeTx.finish();
+            }
+
+            if (tx != null) {
+                tx.success();
+            }
+            return new Result(source, tree, root, System.nanoTime() - start, null);
+        } catch (Exception e) {
+            if (tx == null) {
+                discard(reader.result());
+            }
+            return new Result(source, null, null, System.nanoTime() - start, e);
+        } finally {
+            if (tx != null) {
+                tx.finish();
+            }
+        }
+    }
+
+    /**
+     * Deletes what intermediate commits of a failed import left behind.
+     */
+    private void discard(Element root) {
+        if (root == null) {
+            return;
+        }
+        final Transaction tx = db.beginTx();
+        try {
+            final List<GoddagTreeNode> nodes = new ArrayList<GoddagTreeNode>();
+            IteratorUtil.addToCollection(root.getDescendants(root).iterator(), nodes);
+            nodes.add(root);
+            for (GoddagTreeNode node : nodes) {
+                for (Relationship r : node.node.getRelationships()) {
+                    if (!r.getType().equals(GoddagEdge.HAS_ATTRIBUTE)) {
+                        r.delete();
+                    }
+                }
+            }
+            for (GoddagTreeNode node : nodes) {
+                if (node instanceof Element) {
+                    ((Element) node).delete();
+                } else {
+                    node.node.delete();
+                }
+            }
+            tx.success();
+        } catch (NotFoundException e) {
+            // the root itself was rolled back, so nothing has been committed
+        } finally {
+            tx.finish();
+        }
+    }
+
+    public static class Result {
+        private final InputSource source;
+        private final MultiRootedTree tree;
+        private final Element root;
+        private final long duration;
+        private final Throwable failure;
+
+        private Result(InputSource source, MultiRootedTree tree, Element root, long duration, Throwable failure) {
+            this.source = source;
+            this.tree = tree;
+            this.root = root;
+            this.duration = duration;
+            this.failure = failure;
+        }
+
+        public InputSource getSource() {
+            return source;
+        }
+
+        public MultiRootedTree getTree() {
+            return tree;
+        }
+
+        public Element getRoot() {
+            return root;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public boolean isSuccessful() {
+            return (failure == null);
+        }
+
+        @Override
+        public String toString() {
+            return source.getSystemId() + " (" + (duration / 1000000) + " ms" + (failure == null ? "" : ", " + failure) + ")";
+        }
+    }
+}
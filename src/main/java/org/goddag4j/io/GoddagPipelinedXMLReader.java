@@ -0,0 +1,291 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.XMLConstants;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Imports XML like {@link GoddagXMLReader}, but parses on a separate thread.
+ * The parser thread turns SAX events into compact commands and hands them in
+ * chunks over a bounded queue to the calling thread, which writes them to the
+ * database. A full queue blocks the parser until the writer catches up.
+ */
+public class GoddagPipelinedXMLReader {
+
+    private final GraphDatabaseService db;
+    private final Map<URI, String> namespaces;
+    private final GoddagEdge.Encoding edgeEncoding;
+
+    private int commitInterval = 0;
+    private int chunkSize = 1024;
+    private int queueCapacity = 16;
+
+    public GoddagPipelinedXMLReader(GraphDatabaseService db, Map<URI, String> namespaces) {
+        this(db, namespaces, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public GoddagPipelinedXMLReader(GraphDatabaseService db, Map<URI, String> namespaces, GoddagEdge.Encoding edgeEncoding) {
+        this.db = db;
+        this.namespaces = namespaces;
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /**
+     * @see GoddagXMLReader#setCommitInterval(int)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(Integer.toString(chunkSize));
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(Integer.toString(queueCapacity));
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Element parse(InputSource source) throws SAXException, IOException {
+        final BlockingQueue<List<Command>> queue = new ArrayBlockingQueue<List<Command>>(queueCapacity);
+        final Parser parser = new Parser(source, queue);
+        final Thread parserThread = new Thread(parser, getClass().getSimpleName());
+        parserThread.setDaemon(true);
+        parserThread.start();
+
+        final GoddagTreeBuilder builder = new GoddagTreeBuilder(db, edgeEncoding, commitInterval);
+        try {
+            builder.startDocument();
+            while (true) {
+                for (Command command : queue.take()) {
+                    if (command.type == Command.END) {
+                        builder.endDocument();
+                        return builder.result();
+                    }
+                    command.apply(builder);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAXException(e);
+        } catch (ParserFailure failure) {
+            final Throwable cause = failure.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SAXException((Exception) cause);
+        } finally {
+            builder.abort();
+            parserThread.interrupt();
+        }
+    }
+
+    private static class Command {
+        private static final int START_ELEMENT = 0;
+        private static final int END_ELEMENT = 1;
+        private static final int TEXT = 2;
+        private static final int COMMENT = 3;
+        private static final int PI = 4;
+        private static final int END = 5;
+        private static final int FAILURE = 6;
+
+        private final int type;
+        private final String first;
+        private final String second;
+        private final String[] attributes;
+        private final Throwable failure;
+
+        private Command(int type, String first, String second, String[] attributes, Throwable failure) {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+            this.attributes = attributes;
+            this.failure = failure;
+        }
+
+        private Command(int type, String first, String second) {
+            this(type, first, second, null, null);
+        }
+
+        private void apply(GoddagTreeBuilder builder) {
+            switch (type) {
+            case START_ELEMENT:
+                final Element element = builder.startElement(first, second);
+                for (int ac = 0; ac < attributes.length; ac += 3) {
+                    element.setAttribute(attributes[ac], attributes[ac + 1], attributes[ac + 2]);
+                }
+                break;
+            case END_ELEMENT:
+                builder.endElement();
+                break;
+            case TEXT:
+                builder.characters(first);
+                break;
+            case COMMENT:
+                builder.comment(first);
+                break;
+            case PI:
+                builder.processingInstruction(first, second);
+                break;
+            case FAILURE:
+                throw new ParserFailure(failure);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ParserFailure extends RuntimeException {
+        private ParserFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private class Parser extends DefaultHandler2 implements Runnable {
+        private final InputSource source;
+        private final BlockingQueue<List<Command>> queue;
+        private final StringBuilder characterData = new StringBuilder();
+        private List<Command> chunk = new ArrayList<Command>(chunkSize);
+
+        private Parser(InputSource source, BlockingQueue<List<Command>> queue) {
+            this.source = source;
+            this.queue = queue;
+        }
+
+        public void run() {
+            try {
+                final XMLReader reader = XMLReaderFactory.createXMLReader();
+                reader.setFeature("http://xml.org/sax/features/namespaces", true);
+                reader.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+                reader.setProperty("http://xml.org/sax/properties/lexical-handler", this);
+                reader.setContentHandler(this);
+                reader.parse(source);
+            } catch (Throwable t) {
+                if (!(t.getCause() instanceof InterruptedException)) {
+                    try {
+                        chunk.add(new Command(Command.FAILURE, null, null, null, t));
+                        queue.put(chunk);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }
+        }
+
+        private void emit(Command command) throws SAXException {
+            chunk.add(command);
+            if (chunk.size() >= chunkSize || command.type == Command.END) {
+                try {
+                    queue.put(chunk);
+                } catch (InterruptedException e) {
+                    throw new SAXException(e);
+                }
+                chunk = new ArrayList<Command>(chunkSize);
+            }
+        }
+
+        private void flushText() throws SAXException {
+            if (characterData.length() > 0) {
+                emit(new Command(Command.TEXT, characterData.toString(), null));
+                characterData.setLength(0);
+            }
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            flushText();
+            emit(new Command(Command.END, null, null));
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException {
+            flushText();
+            final String elementPrefix = GoddagXMLReader.getPrefix(namespaces, uri, null);
+            final List<String> attributes = new ArrayList<String>(attrs.getLength() * 3);
+            for (int ac = 0; ac < attrs.getLength(); ac++) {
+                if (GoddagTreeBuilder.isNamespaceDeclaration(attrs.getQName(ac))) {
+                    continue;
+                }
+                String attrUri = attrs.getURI(ac);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attrUri)) {
+                    continue;
+                }
+                attributes.add(GoddagXMLReader.getPrefix(namespaces, attrUri, elementPrefix));
+                attributes.add(attrs.getLocalName(ac));
+                attributes.add(attrs.getValue(ac));
+            }
+            emit(new Command(Command.START_ELEMENT, elementPrefix, localName, attributes.toArray(new String[attributes.size()]),
+                    null));
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            flushText();
+            emit(new Command(Command.END_ELEMENT, null, null));
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            flushText();
+            emit(new Command(Command.PI, target, data));
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) throws SAXException {
+            flushText();
+            emit(new Command(Command.COMMENT, new String(ch, start, length), null));
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            characterData.append(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.net.URI;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Pull-based counterpart of {@link GoddagXMLReader}, which imports XML from a
+ * {@link XMLStreamReader} in steps driven by the caller. Between steps the
+ * caller is free to commit, throttle or hand the import over to another
+ * thread, as long as only one thread at a time works on it.
+ */
+public class GoddagStAXReader {
+
+    private final Map<URI, String> namespaces;
+    private final XMLStreamReader in;
+    private final GoddagTreeBuilder builder;
+    private boolean finished = false;
+
+    public GoddagStAXReader(GraphDatabaseService db, Map<URI, String> namespaces, XMLStreamReader in) {
+        this(db, namespaces, GoddagEdge.Encoding.ROOT_PROPERTY, in);
+    }
+
+    public GoddagStAXReader(GraphDatabaseService db, Map<URI, String> namespaces, GoddagEdge.Encoding edgeEncoding,
+            XMLStreamReader in) {
+        this.namespaces = namespaces;
+        this.in = in;
+        this.builder = new GoddagTreeBuilder(db, edgeEncoding, 0);
+        this.builder.startDocument();
+    }
+
+    public Element parse() throws XMLStreamException {
+        while (step(Integer.MAX_VALUE)) {
+        }
+        return result();
+    }
+
+    /**
+     * Consumes events from the underlying stream until the given number of
+     * nodes has been created or the end of the document has been reached.
+     * 
+     * @return <code>true</code> if the document has not been read completely
+     */
+    public boolean step(int nodes) throws XMLStreamException {
+        final long limit = builder.created() + nodes;
+        while (!finished && builder.created() < limit) {
+            if (!in.hasNext()) {
+                builder.endDocument();
+                finished = true;
+                break;
+            }
+            handle(in.next());
+        }
+        return !finished;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public Element result() {
+        return builder.result();
+    }
+
+    public long getCreatedNodeCount() {
+        return builder.created();
+    }
+
+    private void handle(int event) throws XMLStreamException {
+        switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+            final String elementPrefix = getPrefix(in.getNamespaceURI(), null);
+            final Element element = builder.startElement(elementPrefix, in.getLocalName());
+            for (int ac = 0; ac < in.getAttributeCount(); ac++) {
+                final String attrPrefix = getPrefix(in.getAttributeNamespace(ac), elementPrefix);
+                element.setAttribute(attrPrefix, in.getAttributeLocalName(ac), in.getAttributeValue(ac));
+            }
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            builder.endElement();
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            builder.characters(in.getTextCharacters(), in.getTextStart(), in.getTextLength());
+            break;
+        case XMLStreamConstants.COMMENT:
+            builder.comment(in.getText());
+            break;
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            builder.processingInstruction(in.getPITarget(), in.getPIData());
+            break;
+        case XMLStreamConstants.END_DOCUMENT:
+            builder.endDocument();
+            finished = true;
+            break;
+        }
+    }
+
+    private String getPrefix(String uri, String defaultPrefix) throws XMLStreamException {
+        if (uri == null || uri.length() == 0) {
+            return defaultPrefix;
+        }
+        final String prefix = namespaces.get(URI.create(uri));
+        if (prefix == null) {
+            throw new XMLStreamException("Unknown XML namespace: " + uri, in.getLocation());
+        }
+        return prefix;
+    }
+}
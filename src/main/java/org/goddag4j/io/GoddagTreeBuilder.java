@@ -0,0 +1,148 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.util.Stack;
+
+import org.goddag4j.Comment;
+import org.goddag4j.Element;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.ProcessingInstruction;
+import org.goddag4j.Text;
+import org.goddag4j.TextStore;
+import org.goddag4j.TreeAppender;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+class GoddagTreeBuilder {
+    private final GraphDatabaseService db;
+    private final GoddagEdge.Encoding edgeEncoding;
+    private final int commitInterval;
+    private TextStore textStore;
+
+    private StringBuilder characterData;
+    private Stack<TreeAppender> childAxis;
+    private Element result;
+    private BatchTransaction transaction;
+    private long created;
+
+    GoddagTreeBuilder(GraphDatabaseService db, GoddagEdge.Encoding edgeEncoding, int commitInterval) {
+        this.db = db;
+        this.edgeEncoding = edgeEncoding;
+        this.commitInterval = commitInterval;
+    }
+
+    void setTextStore(TextStore textStore) {
+        this.textStore = textStore;
+    }
+
+    Element result() {
+        return result;
+    }
+
+    long created() {
+        return created;
+    }
+
+    void startDocument() {
+        childAxis = new Stack<TreeAppender>();
+        result = null;
+        characterData = new StringBuilder();
+        created = 0;
+        transaction = new BatchTransaction(db, commitInterval);
+    }
+
+    void endDocument() {
+        transaction.success();
+        transaction.finish();
+    }
+
+    void abort() {
+        if (transaction != null) {
+            transaction.finish();
+        }
+    }
+
+    Element startElement(String prefix, String localName) {
+        final Element element = new Element(db, prefix, localName);
+        if (childAxis.isEmpty()) {
+            result = element;
+            result.setEdgeEncoding(edgeEncoding);
+        } else {
+            createTextNode();
+            childAxis.peek().append(element);
+        }
+        childAxis.push(new TreeAppender(result, element));
+        nodeCreated();
+        return element;
+    }
+
+    void endElement() {
+        createTextNode();
+        childAxis.pop();
+    }
+
+    void characters(char[] ch, int start, int length) {
+        if (!childAxis.isEmpty()) {
+            characterData.append(ch, start, length);
+        }
+    }
+
+    void characters(String text) {
+        if (!childAxis.isEmpty()) {
+            characterData.append(text);
+        }
+    }
+
+    void processingInstruction(String target, String data) {
+        if (!childAxis.isEmpty()) {
+            createTextNode();
+            childAxis.peek().append(new ProcessingInstruction(db, target, data));
+            nodeCreated();
+        }
+    }
+
+    void comment(String content) {
+        if (!childAxis.isEmpty()) {
+            createTextNode();
+            childAxis.peek().append(new Comment(db, content));
+            nodeCreated();
+        }
+    }
+
+    private void createTextNode() {
+        if (characterData.length() > 0) {
+            final String text = characterData.toString();
+            childAxis.peek().append(textStore == null ? new Text(db, text) : textStore.append(text));
+            characterData = new StringBuilder();
+            nodeCreated();
+        }
+    }
+
+    private void nodeCreated() {
+        created++;
+        transaction.nodeCreated();
+    }
+
+    static boolean isNamespaceDeclaration(String qName) {
+        return "xmlns".equals(qName) || qName.startsWith("xmlns:");
+    }
+}
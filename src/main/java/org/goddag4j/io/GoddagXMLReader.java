@@ -24,14 +24,12 @@ package org.goddag4j.io;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
-import java.util.Stack;
 
 import javax.xml.XMLConstants;
 
-import org.goddag4j.Comment;
 import org.goddag4j.Element;
-import org.goddag4j.ProcessingInstruction;
-import org.goddag4j.Text;
+import org.goddag4j.GoddagEdge;
+import org.goddag4j.TextStore;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -44,21 +42,63 @@ public class GoddagXMLReader extends DefaultHandler2 {
 
     private final GraphDatabaseService db;
     private final Map<URI, String> namespaces;
+    private final GoddagEdge.Encoding edgeEncoding;
 
-    private StringBuilder characterData;
-    private Stack<Element> childAxis;
-    private Element result;
+    private int commitInterval = 0;
+    private TextStore textStore;
+
+    private GoddagTreeBuilder builder;
 
     public GoddagXMLReader(GraphDatabaseService db, Map<URI, String> namespaces) {
+        this(db, namespaces, GoddagEdge.Encoding.ROOT_PROPERTY);
+    }
+
+    public GoddagXMLReader(GraphDatabaseService db, Map<URI, String> namespaces, GoddagEdge.Encoding edgeEncoding) {
         this.db = db;
         this.namespaces = namespaces;
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /**
+     * Lets the reader run its own transactions, committing each time the
+     * given number of nodes has been created, so the memory needed for
+     * uncommitted changes is bounded independent of the document size. If
+     * the import fails, only the changes since the last commit are rolled
+     * back.
+     * <p>
+     * Transactions are nested in a transaction of the caller, so no
+     * intermediate commits happen when the reader is called within one.
+     * 
+     * @param commitInterval
+     *            the number of nodes per transaction or <code>0</code> to
+     *            create all nodes within the caller's transaction (default)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Appends the text content of the document to the given store instead of
+     * storing it in the text nodes themselves.
+     */
+    public void setTextStore(TextStore textStore) {
+        this.textStore = textStore;
     }
 
     public Element parse(InputSource source) throws SAXException, IOException {
         final XMLReader reader = XMLReaderFactory.createXMLReader();
         attachTo(reader);
-        reader.parse(source);
-        return result;
+        try {
+            reader.parse(source);
+        } finally {
+            if (builder != null) {
+                builder.abort();
+            }
+        }
+        return result();
     }
 
     public void attachTo(XMLReader xmlReader) throws SAXException {
@@ -66,85 +106,69 @@ public class GoddagXMLReader extends DefaultHandler2 {
         xmlReader.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
         xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler", this);
         xmlReader.setContentHandler(this);
+        builder = null;
     }
 
     public Element result() {
-        return result;
+        return (builder == null ? null : builder.result());
     }
 
     @Override
     public void startDocument() throws SAXException {
-        childAxis = new Stack<Element>();
-        result = null;
-        characterData = new StringBuilder();
+        builder = new GoddagTreeBuilder(db, edgeEncoding, commitInterval);
+        builder.setTextStore(textStore);
+        builder.startDocument();
     }
 
     @Override
-    public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException {
-        String elementPrefix = null;
-        if (uri != null && uri.length() > 0) {
-            elementPrefix = namespaces.get(URI.create(uri));
-            if (elementPrefix == null) {
-                throw new SAXException("Unknown XML namespace: " + uri);
-            }
-        }
+    public void endDocument() throws SAXException {
+        builder.endDocument();
+    }
 
-        final Element element = new Element(db, elementPrefix, localName);
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException {
+        final String elementPrefix = getPrefix(namespaces, uri, null);
+        final Element element = builder.startElement(elementPrefix, localName);
         for (int ac = 0; ac < attrs.getLength(); ac++) {
+            if (GoddagTreeBuilder.isNamespaceDeclaration(attrs.getQName(ac))) {
+                continue;
+            }
             String attrUri = attrs.getURI(ac);
             if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attrUri)) {
                 continue;
             }
-            String attrPrefix = null;
-            if (attrUri != null && attrUri.length() > 0) {
-                attrPrefix = namespaces.get(URI.create(attrUri));
-                if (attrPrefix == null) {
-                    throw new SAXException("Unknown XML namespace: " + attrUri);
-                }
-            } else {
-                attrPrefix = elementPrefix;
-            }
-            element.setAttribute(attrPrefix, attrs.getLocalName(ac), attrs.getValue(ac));
-        }
-
-        if (childAxis.isEmpty()) {
-            result = element;
-        } else {
-            createTextNode();
-            childAxis.peek().insert(result, element, null);
+            element.setAttribute(getPrefix(namespaces, attrUri, elementPrefix), attrs.getLocalName(ac), attrs.getValue(ac));
         }
-        childAxis.push(element);
     }
 
-    private void createTextNode() {
-        if (characterData.length() > 0) {
-            childAxis.peek().insert(result, new Text(db, characterData.toString()), null);
-            characterData = new StringBuilder();
+    static String getPrefix(Map<URI, String> namespaces, String uri, String defaultPrefix) throws SAXException {
+        if (uri == null || uri.length() == 0) {
+            return defaultPrefix;
         }
+        final String prefix = namespaces.get(URI.create(uri));
+        if (prefix == null) {
+            throw new SAXException("Unknown XML namespace: " + uri);
+        }
+        return prefix;
     }
 
     @Override
     public void endElement(String uri, String localName, String qName) throws SAXException {
-        createTextNode();
-        childAxis.pop();
+        builder.endElement();
     }
 
     @Override
     public void processingInstruction(String target, String data) throws SAXException {
-        if (result != null) {
-            childAxis.peek().insert(result, new ProcessingInstruction(db, target, data), null);
-        }
+        builder.processingInstruction(target, data);
     }
 
     @Override
     public void comment(char[] ch, int start, int length) throws SAXException {
-        if (result != null) {
-            childAxis.peek().insert(result, new Comment(db, new String(ch, start, length)), null);
-        }
+        builder.comment(new String(ch, start, length));
     }
 
     @Override
     public void characters(char[] ch, int start, int length) throws SAXException {
-        characterData.append(ch, start, length);
+        builder.characters(ch, start, length);
     }
 }
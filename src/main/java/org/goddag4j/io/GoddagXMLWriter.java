@@ -24,8 +24,14 @@ package org.goddag4j.io;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.goddag4j.Attribute;
 import org.goddag4j.Comment;
@@ -45,6 +51,12 @@ public class GoddagXMLWriter extends BaseXMLReader {
     private final boolean wrapText;
     private String textNodeElementName;
     private String textNodeIdName;
+    private char[] characters = new char[1024];
+
+    private GoddagTreeNode rangeStart;
+    private GoddagTreeNode rangeEnd;
+    private int characterLimit = 0;
+    private int remainingCharacters;
 
     public GoddagXMLWriter(Element root, Map<URI, String> namespaceMap, boolean wrapText) {
         this.root = root;
@@ -64,92 +76,354 @@ public class GoddagXMLWriter extends BaseXMLReader {
 
     }
 
+    /**
+     * Restricts the output to the nodes from <code>start</code> through
+     * <code>end</code> in document order, enclosed in the tags of their
+     * ancestors. Without an end following the start, it extends to the end of
+     * the document.
+     */
+    public void setRange(GoddagTreeNode start, GoddagTreeNode end) {
+        this.rangeStart = start;
+        this.rangeEnd = end;
+    }
+
+    /**
+     * Restricts the output to the children of <code>parent</code> from index
+     * <code>from</code> (inclusive) to <code>to</code> (exclusive).
+     */
+    public void setChildRange(Element parent, int from, int to) {
+        if (from < 0 || to <= from) {
+            throw new IllegalArgumentException(from + " - " + to);
+        }
+        GoddagTreeNode start = null;
+        GoddagTreeNode end = null;
+        int index = 0;
+        for (GoddagTreeNode child : parent.getChildren(root)) {
+            if (index == from) {
+                start = child;
+            }
+            if (index == to - 1) {
+                end = child;
+                break;
+            }
+            index++;
+        }
+        if (end == null) {
+            throw new IllegalArgumentException(from + " - " + to);
+        }
+        setRange(start, end);
+    }
+
+    /**
+     * Stops the output after the given number of text characters, truncating
+     * the text node in which the limit is reached; 0 writes all text.
+     */
+    public void setCharacterLimit(int characterLimit) {
+        if (characterLimit < 0) {
+            throw new IllegalArgumentException(Integer.toString(characterLimit));
+        }
+        this.characterLimit = characterLimit;
+    }
+
     protected void parse() throws SAXException {
         if (contentHandler == null) {
             throw new SAXException("No content handler registered");
         }
+        write(new SAXOutput());
+    }
 
-        contentHandler.startDocument();
-        for (Map.Entry<String, String> nsMapping : namespaceReverseMap.entrySet()) {
-            contentHandler.startPrefixMapping(nsMapping.getKey(), nsMapping.getValue());
-        }
-        handleElement(root);
-        for (String prefix : namespaceReverseMap.keySet()) {
-            contentHandler.endPrefixMapping(prefix);
-        }
+    /**
+     * The given writer is neither flushed nor closed.
+     */
+    public void write(XMLStreamWriter out) throws XMLStreamException {
+        write(new StAXOutput(out));
+    }
+
+    private <E extends Exception> void write(Output<E> out) throws E {
+        remainingCharacters = (characterLimit == 0 ? Integer.MAX_VALUE : characterLimit);
 
-        contentHandler.endDocument();
+        out.startDocument();
+        if (rangeStart == null && rangeEnd == null) {
+            writeNode(out, root);
+        } else {
+            writeRange(out);
+        }
+        out.endDocument();
     }
 
-    protected void handleElement(Element element) throws SAXException {
-        String uri = namespaceReverseMap.get(element.getPrefix());
-        if (uri == null) {
-            throw new SAXException("Unregistered namespace prefix: " + element.getPrefix());
+    private <E extends Exception> void writeRange(Output<E> out) throws E {
+        final GoddagTreeNode start = (rangeStart == null ? root : rangeStart);
+
+        final List<Element> open = new ArrayList<Element>();
+        for (GoddagTreeNode ancestor : start.getAncestors(root)) {
+            open.add(0, (Element) ancestor);
+        }
+        for (Element element : open) {
+            out.startElement(element);
         }
 
-        contentHandler.startElement(uri, element.getName(), element.getQName(), new SAXAttributesFacade(element));
+        final Set<GoddagTreeNode> endAncestors = new HashSet<GoddagTreeNode>();
+        if (rangeEnd != null) {
+            for (GoddagTreeNode ancestor : rangeEnd.getAncestors(root)) {
+                endAncestors.add(ancestor);
+            }
+        }
 
-        for (GoddagTreeNode child : element.getChildren(root)) {
-            switch (child.getNodeType()) {
-            case ELEMENT:
-                handleElement((Element) child);
+        GoddagTreeNode current = start;
+        while (current != null && remainingCharacters > 0) {
+            if (endAncestors.contains(current)) {
+                out.startElement((Element) current);
+                open.add((Element) current);
+                current = current.getFirstChild(root);
+                continue;
+            }
+
+            writeNode(out, current);
+            if (current.equals(rangeEnd)) {
                 break;
-            case TEXT:
-                final Text textNode = (Text) child;
-                if (wrapText) {
-                    AttributesImpl atts = new AttributesImpl();
-                    atts.addAttribute(NamespaceMap.GODDAG_NS_URI, "id", textNodeIdName, "CDATA",
-                            Long.toString(textNode.node.getId()));
-                    contentHandler.startElement(NamespaceMap.GODDAG_NS_URI, "text", textNodeElementName, atts);
+            }
+
+            GoddagTreeNode next = current.getNextSibling(root);
+            while (next == null && !open.isEmpty()) {
+                final Element parent = open.remove(open.size() - 1);
+                out.endElement(parent);
+                if (parent.equals(rangeEnd)) {
+                    break;
                 }
+                next = parent.getNextSibling(root);
+            }
+            current = next;
+        }
 
-                final char[] text = textNode.getText().toCharArray();
-                contentHandler.characters(text, 0, text.length);
+        for (int ec = open.size() - 1; ec >= 0; ec--) {
+            out.endElement(open.get(ec));
+        }
+    }
 
-                if (wrapText) {
-                    contentHandler.endElement(NamespaceMap.GODDAG_NS_URI, "text", textNodeElementName);
+    private <E extends Exception> void writeNode(Output<E> out, GoddagTreeNode node) throws E {
+        switch (node.getNodeType()) {
+        case ELEMENT:
+            final Element element = (Element) node;
+            out.startElement(element);
+            for (GoddagTreeNode child : element.getChildren(root)) {
+                if (remainingCharacters == 0) {
+                    break;
                 }
-                break;
-            case PI:
-                final ProcessingInstruction pi = (ProcessingInstruction) child;
-                contentHandler.processingInstruction(pi.getTarget(), pi.getInstruction());
-                break;
-            case COMMENT:
-                if (lexicalHandler != null) {
-                    final char[] comment = ((Comment) child).getContent().toCharArray();
-                    lexicalHandler.comment(comment, 0, comment.length);
+                writeNode(out, child);
+            }
+            out.endElement(element);
+            break;
+        case TEXT:
+            final Text text = (Text) node;
+            final String content = text.getText();
+            final int length = Math.min(content.length(), remainingCharacters);
+            remainingCharacters -= length;
+            out.text(text, toCharacters(content), length);
+            break;
+        case PI:
+            out.processingInstruction((ProcessingInstruction) node);
+            break;
+        case COMMENT:
+            out.comment((Comment) node);
+        }
+    }
+
+    /**
+     * @return a shared buffer holding the string, valid until the next call
+     */
+    private char[] toCharacters(String str) {
+        final int length = str.length();
+        if (length > characters.length) {
+            characters = new char[Math.max(length, characters.length * 2)];
+        }
+        str.getChars(0, length, characters, 0);
+        return characters;
+    }
+
+    private interface Output<E extends Exception> {
+        void startDocument() throws E;
+
+        void startElement(Element element) throws E;
+
+        void endElement(Element element) throws E;
+
+        void text(Text text, char[] content, int length) throws E;
+
+        void processingInstruction(ProcessingInstruction pi) throws E;
+
+        void comment(Comment comment) throws E;
+
+        void endDocument() throws E;
+    }
+
+    private class SAXOutput implements Output<SAXException> {
+        private final AttributesImpl textNodeAttributes = new AttributesImpl();
+        private final SAXAttributesFacade attributes = new SAXAttributesFacade();
+
+        public void startDocument() throws SAXException {
+            contentHandler.startDocument();
+            for (Map.Entry<String, String> nsMapping : namespaceReverseMap.entrySet()) {
+                contentHandler.startPrefixMapping(nsMapping.getKey(), nsMapping.getValue());
+            }
+        }
+
+        public void startElement(Element element) throws SAXException {
+            attributes.reset(element);
+            contentHandler.startElement(uri(element), element.getName(), element.getQName(), attributes);
+        }
+
+        public void endElement(Element element) throws SAXException {
+            contentHandler.endElement(uri(element), element.getName(), element.getQName());
+        }
+
+        private String uri(Element element) throws SAXException {
+            final String uri = namespaceReverseMap.get(element.getPrefix());
+            if (uri == null) {
+                throw new SAXException("Unregistered namespace prefix: " + element.getPrefix());
+            }
+            return uri;
+        }
+
+        public void text(Text text, char[] content, int length) throws SAXException {
+            if (wrapText) {
+                textNodeAttributes.clear();
+                textNodeAttributes.addAttribute(NamespaceMap.GODDAG_NS_URI, "id", textNodeIdName, "CDATA",
+                        Long.toString(text.node.getId()));
+                contentHandler.startElement(NamespaceMap.GODDAG_NS_URI, "text", textNodeElementName, textNodeAttributes);
+            }
+
+            contentHandler.characters(content, 0, length);
+
+            if (wrapText) {
+                contentHandler.endElement(NamespaceMap.GODDAG_NS_URI, "text", textNodeElementName);
+            }
+        }
+
+        public void processingInstruction(ProcessingInstruction pi) throws SAXException {
+            contentHandler.processingInstruction(pi.getTarget(), pi.getInstruction());
+        }
+
+        public void comment(Comment comment) throws SAXException {
+            if (lexicalHandler != null) {
+                final String content = comment.getContent();
+                lexicalHandler.comment(toCharacters(content), 0, content.length());
+            }
+        }
+
+        public void endDocument() throws SAXException {
+            for (String prefix : namespaceReverseMap.keySet()) {
+                contentHandler.endPrefixMapping(prefix);
+            }
+            contentHandler.endDocument();
+        }
+    }
+
+    private class StAXOutput implements Output<XMLStreamException> {
+        private final XMLStreamWriter out;
+        private boolean declareNamespaces = true;
+
+        private StAXOutput(XMLStreamWriter out) {
+            this.out = out;
+        }
+
+        public void startDocument() throws XMLStreamException {
+            out.writeStartDocument();
+        }
+
+        public void startElement(Element element) throws XMLStreamException {
+            final String prefix = element.getPrefix();
+            final String uri = namespaceReverseMap.get(prefix);
+            if (uri == null) {
+                throw new XMLStreamException("Unregistered namespace prefix: " + prefix);
+            }
+
+            out.writeStartElement(prefix, element.getName(), uri);
+            if (declareNamespaces) {
+                for (Map.Entry<String, String> nsMapping : namespaceReverseMap.entrySet()) {
+                    final String nsPrefix = nsMapping.getKey();
+                    if (!XMLConstants.XML_NS_PREFIX.equals(nsPrefix) && !XMLConstants.XMLNS_ATTRIBUTE.equals(nsPrefix)) {
+                        out.writeNamespace(nsPrefix, nsMapping.getValue());
+                    }
                 }
+                declareNamespaces = false;
             }
+            for (Attribute attr : element.getAttributes()) {
+                final String attrPrefix = attr.getPrefix();
+                if (attrPrefix.length() == 0) {
+                    out.writeAttribute(attr.getName(), attr.getValue());
+                } else {
+                    out.writeAttribute(attrPrefix, namespaceReverseMap.get(attrPrefix), attr.getName(), attr.getValue());
+                }
+            }
+        }
+
+        public void endElement(Element element) throws XMLStreamException {
+            out.writeEndElement();
         }
 
-        contentHandler.endElement(uri, element.getName(), element.getQName());
+        public void text(Text text, char[] content, int length) throws XMLStreamException {
+            if (wrapText) {
+                final String goddagPrefix = namespaceMap.get(NamespaceMap.GODDAG_NS_URI);
+                out.writeStartElement(goddagPrefix, "text", NamespaceMap.GODDAG_NS_URI);
+                out.writeAttribute(goddagPrefix, NamespaceMap.GODDAG_NS_URI, "id", Long.toString(text.node.getId()));
+            }
+
+            out.writeCharacters(content, 0, length);
+
+            if (wrapText) {
+                out.writeEndElement();
+            }
+        }
+
+        public void processingInstruction(ProcessingInstruction pi) throws XMLStreamException {
+            out.writeProcessingInstruction(pi.getTarget(), pi.getInstruction());
+        }
+
+        public void comment(Comment comment) throws XMLStreamException {
+            out.writeComment(comment.getContent());
+        }
+
+        public void endDocument() throws XMLStreamException {
+            out.writeEndDocument();
+        }
     }
 
+    /**
+     * Attributes of the element being started, read lazily.
+     */
     private class SAXAttributesFacade implements Attributes {
-        private final Attribute[] attributes;
+        private final List<Attribute> attributes = new ArrayList<Attribute>();
+        private Element element;
 
-        private SAXAttributesFacade(Element element) {
-            List<Attribute> attrList = new ArrayList<Attribute>();
-            for (Attribute a : element.getAttributes()) {
-                attrList.add(a);
+        private void reset(Element element) {
+            this.element = element;
+            this.attributes.clear();
+        }
+
+        private List<Attribute> attributes() {
+            if (element != null) {
+                for (Attribute a : element.getAttributes()) {
+                    attributes.add(a);
+                }
+                element = null;
             }
-            this.attributes = attrList.toArray(new Attribute[attrList.size()]);
+            return attributes;
         }
 
         public int getLength() {
-            return attributes.length;
+            return attributes().size();
         }
 
         public String getURI(int index) {
-            return namespaceReverseMap.get(attributes[index].getPrefix());
+            return namespaceReverseMap.get(attributes().get(index).getPrefix());
         }
 
         public String getLocalName(int index) {
-            return attributes[index].getName();
+            return attributes().get(index).getName();
         }
 
         public String getQName(int index) {
-            return attributes[index].getQName();
+            return attributes().get(index).getQName();
         }
 
         public String getType(int index) {
@@ -157,7 +431,7 @@ public class GoddagXMLWriter extends BaseXMLReader {
         }
 
         public String getValue(int index) {
-            return attributes[index].getValue();
+            return attributes().get(index).getValue();
         }
 
         public int getIndex(String uri, String localName) {
@@ -165,8 +439,9 @@ public class GoddagXMLWriter extends BaseXMLReader {
         }
 
         public int getIndex(String qName) {
-            for (int ac = 0; ac < attributes.length; ac++) {
-                if (qName.equals(attributes[ac].getQName())) {
+            final List<Attribute> attributes = attributes();
+            for (int ac = 0; ac < attributes.size(); ac++) {
+                if (qName.equals(attributes.get(ac).getQName())) {
                     return ac;
                 }
             }
@@ -186,7 +461,7 @@ public class GoddagXMLWriter extends BaseXMLReader {
         }
 
         public String getValue(String qName) {
-            for (Attribute a : attributes) {
+            for (Attribute a : attributes()) {
                 if (qName.equals(a.getQName())) {
                     return a.getValue();
                 }
@@ -0,0 +1,90 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.util.Arrays;
+
+/**
+ * Maps node ids to node ids via open addressing on primitive arrays.
+ */
+class NodeIdMap {
+    private static final long FREE = -1;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    NodeIdMap() {
+        keys = new long[1024];
+        values = new long[1024];
+        Arrays.fill(keys, FREE);
+    }
+
+    void put(long key, long value) {
+        if (2 * (size + 1) > keys.length) {
+            rehash(keys.length * 2);
+        }
+        final int slot = slot(keys, key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    long get(long key) {
+        final int slot = slot(keys, key);
+        return (keys[slot] == FREE ? FREE : values[slot]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Fibonacci hashing: the top log2(capacity) bits of the product are the
+     * best mixed ones, so the shift depends on the capacity.
+     */
+    private static int slot(long[] keys, long key) {
+        final int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (32 + Integer.numberOfLeadingZeros(mask)));
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+        for (int kc = 0; kc < oldKeys.length; kc++) {
+            if (oldKeys[kc] != FREE) {
+                final int slot = slot(keys, oldKeys[kc]);
+                keys[slot] = oldKeys[kc];
+                values[slot] = oldValues[kc];
+            }
+        }
+    }
+}
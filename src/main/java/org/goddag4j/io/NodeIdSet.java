@@ -0,0 +1,91 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+/**
+ * Set of node ids, stored as a bitmap whose pages of 65536 ids are only
+ * allocated once an id within them is added.
+ */
+class NodeIdSet {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private long[][] pages = new long[16][];
+    private long size;
+
+    boolean add(long id) {
+        final int page = (int) (id >>> PAGE_BITS);
+        if (page >= pages.length) {
+            final long[][] grown = new long[Math.max(page + 1, pages.length * 2)][];
+            System.arraycopy(pages, 0, grown, 0, pages.length);
+            pages = grown;
+        }
+        long[] words = pages[page];
+        if (words == null) {
+            words = pages[page] = new long[1 << (PAGE_BITS - 6)];
+        }
+        final int bit = (int) (id & PAGE_MASK);
+        final long mask = 1L << bit;
+        if ((words[bit >>> 6] & mask) != 0) {
+            return false;
+        }
+        words[bit >>> 6] |= mask;
+        size++;
+        return true;
+    }
+
+    boolean contains(long id) {
+        final int page = (int) (id >>> PAGE_BITS);
+        if (page >= pages.length || pages[page] == null) {
+            return false;
+        }
+        final int bit = (int) (id & PAGE_MASK);
+        return (pages[page][bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return the smallest id in the set that is not less than the given one
+     *         or <code>-1</code> if there is none
+     */
+    long next(long from) {
+        int page = (int) (from >>> PAGE_BITS);
+        int word = (int) (from & PAGE_MASK) >>> 6;
+        long mask = -1L << (from & 63);
+        for (; page < pages.length; page++, word = 0, mask = -1L) {
+            final long[] words = pages[page];
+            if (words == null) {
+                continue;
+            }
+            for (; word < words.length; word++, mask = -1L) {
+                final long bits = words[word] & mask;
+                if (bits != 0) {
+                    return ((long) page << PAGE_BITS) | (word << 6) | Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+        return -1;
+    }
+
+    long size() {
+        return size;
+    }
+}
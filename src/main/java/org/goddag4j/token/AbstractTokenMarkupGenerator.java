@@ -3,73 +3,82 @@ package org.goddag4j.token;
 import org.goddag4j.Element;
 import org.goddag4j.GoddagTreeNode;
 import org.goddag4j.Text;
+import org.goddag4j.TreeAppender;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
 
+/**
+ * Splits up the input texts at token starts and groups the resulting
+ * segments into token elements in a single pass. Segments are appended to
+ * the tree being generated as they are created, so neither the siblings
+ * already generated nor the token elements are ever walked again.
+ * <p>
+ * Consequently, {@link #isTokenStart(Element, GoddagTreeNode, GoddagTreeNode)}
+ * is called with a segment that is not attached to the generated tree yet;
+ * its previous sibling there is the given preceding segment, if any. The
+ * input texts must not be part of the generated tree already.
+ */
 public abstract class AbstractTokenMarkupGenerator implements TokenMarkupGenerator {
-    private GraphDatabaseService db;
+    private int commitInterval = 10000;
 
-    public void generate(Iterable<Text> input, Element to) {
-        this.db = to.node.getGraphDatabase();
-        splitUp(input, to);
-        groupTokenContents(to);
-    }
-
-    private void splitUp(Iterable<Text> input, Element into) {
-        for (Text textNode : input) {
-            Transaction tx = db.beginTx();
-            try {
-                for (Text segment : textNode.split(getTokenStarts(textNode))) {
-                    into.insert(into, segment, null);
-                }
-                tx.success();
-            } finally {
-                tx.finish();
-            }
+    /**
+     * Commits after the given number of segments has been added to the
+     * generated tree. Transactions are nested in a transaction of the caller,
+     * so no intermediate commits happen when the generator is called within
+     * one.
+     *
+     * @param commitInterval
+     *            the number of segments per transaction or <code>0</code> to
+     *            generate all markup in one transaction (default: 10000)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException(Integer.toString(commitInterval));
         }
+        this.commitInterval = commitInterval;
     }
 
-    private void groupTokenContents(Element in) {
+    public void generate(Iterable<Text> input, Element to) {
+        final GraphDatabaseService db = to.node.getGraphDatabase();
+        final TreeAppender tokens = new TreeAppender(to, to);
+        TreeAppender token = null;
+        GoddagTreeNode prev = null;
+        int uncommitted = 0;
+
         Transaction tx = db.beginTx();
         try {
-            GoddagTreeNode prev = null;
-            GoddagTreeNode current = in.getFirstChild(in);
-            GoddagTreeNode token = null;
-            do {
-                if (current == null) {
-                    break;
-                }
-
-                if (tx == null) {
-                    tx = db.beginTx();
-                }
-                
-                if (isTokenStart(in, prev, current)) {
-                    token = createTokenElement(in);
-                    in.insert(in, token, current);
+            for (Text textNode : input) {
+                if (textNode.getParent(to) != null) {
+                    throw new IllegalArgumentException(textNode.toString());
                 }
+                for (Text segment : textNode.split(getTokenStarts(textNode))) {
+                    if (isTokenStart(to, prev, segment)) {
+                        token = new TreeAppender(to, tokens.append(createTokenElement(to)));
+                    }
+                    (token == null ? tokens : token).append(segment);
+                    prev = segment;
 
-                GoddagTreeNode next = current.getNextSibling(in);
-                if (token != null) {
-                    token.insert(in, current, null);
+                    if (commitInterval > 0 && ++uncommitted >= commitInterval) {
+                        tx.success();
+                        tx.finish();
+                        tx = db.beginTx();
+                        uncommitted = 0;
+                    }
                 }
-                prev = current;
-                current = next;
-                
-                tx.success();
-                tx.finish();
-                tx = null;
-            } while (true);
-        } finally {
-            if (tx != null) {
-                tx.finish();
             }
+            tx.success();
+        } finally {
+            tx.finish();
         }
-
     }
 
     protected abstract int[] getTokenStarts(Text textNode);
 
+    /**
+     * @param current
+     *            the next segment to be added to the given root; it is not
+     *            attached to the root yet
+     */
     protected abstract boolean isTokenStart(Element root, GoddagTreeNode prev, GoddagTreeNode current);
 
     protected abstract Element createTokenElement(Element parent);
@@ -23,17 +23,23 @@ package org.goddag4j;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamResult;
 
+import junit.framework.Assert;
+
 import org.codehaus.jackson.JsonEncoding;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.goddag4j.io.GoddagJSONWriter;
+import org.goddag4j.io.GoddagXMLWriter;
 import org.goddag4j.io.NamespaceMap;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -42,7 +48,9 @@ import org.junit.BeforeClass;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.w3c.dom.Node;
 
 import com.google.common.base.Preconditions;
 import com.google.common.io.Files;
@@ -116,6 +124,37 @@ public abstract class GraphDatabaseTestContext {
         System.out.flush();
     }
     
+    protected static Node toDOM(Element root) throws Exception {
+        final DOMResult dom = new DOMResult();
+        TransformerFactory.newInstance().newTransformer().transform(
+                new GoddagXMLWriter(root, NamespaceMap.TEI_MAP, false).toSAXSource(), dom);
+        return dom.getNode();
+    }
+
+    /**
+     * @return the given document and a second root grouping all of its texts
+     */
+    protected static List<Element> withTextRoot(Element document) {
+        final Element texts = new Element(db, "tei", "text");
+        final TreeAppender appender = new TreeAppender(texts, texts);
+        for (GoddagTreeNode node : document.getDescendants(document)) {
+            if (node instanceof Text) {
+                appender.append(new Text(node.node));
+            }
+        }
+        return Arrays.asList(document, texts);
+    }
+
+    protected static void assertCopied(List<Element> written, List<Element> read) throws Exception {
+        Assert.assertEquals(written.size(), read.size());
+        Assert.assertTrue(toDOM(written.get(0)).isEqualNode(toDOM(read.get(0))));
+        Assert.assertEquals(written.get(1).getText(written.get(1)), read.get(1).getText(read.get(1)));
+
+        final Text firstText = (Text) read.get(1).getFirstChild(read.get(1));
+        Assert.assertEquals(2, IteratorUtil.count(firstText.getRoots().iterator()));
+        Assert.assertNotNull(firstText.getParent(read.get(0)));
+    }
+
     protected static final RelationshipType TEST = new RelationshipType() {
 
         public String name() {
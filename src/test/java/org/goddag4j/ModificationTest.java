@@ -22,6 +22,7 @@
 package org.goddag4j;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -29,7 +30,10 @@ import junit.framework.Assert;
 import org.goddag4j.Element;
 import org.goddag4j.GoddagTreeNode;
 import org.goddag4j.Text;
+import org.goddag4j.token.LineTokenMarkupGenerator;
+import org.goddag4j.token.WhitespaceTokenMarkupGenerator;
 import org.junit.Test;
+import org.neo4j.graphdb.Node;
 import org.neo4j.helpers.collection.IteratorUtil;
 
 public class ModificationTest extends GraphDatabaseTestContext {
@@ -85,4 +89,297 @@ public class ModificationTest extends GraphDatabaseTestContext {
         }
         Assert.assertEquals(5, IteratorUtil.count(root.getChildren(root).iterator()));
     }
+
+    @Test
+    public void append() {
+        final GoddagTreeNode parent = root.insert(root, new Element(db, "tei", "p"), null);
+        parent.insert(root, new Text(db, "0"), null);
+
+        final TreeAppender appender = new TreeAppender(root, parent);
+        for (int i = 1; i < 10; i++) {
+            appender.append(new Text(db, Integer.toString(i)));
+        }
+        Assert.assertEquals("0123456789", parent.getText(root));
+        Assert.assertEquals("9", parent.getLastChild(root).getText(root));
+
+        parent.insert(root, new Text(db, "10"), null);
+        Assert.assertEquals("012345678910", parent.getText(root));
+    }
+
+    @Test
+    public void frozenTree() {
+        final GoddagTreeNode p = paragraph();
+        final Text first = (Text) p.getFirstChild(root);
+        final GoddagTreeNode hi = p.getLastChild(root);
+
+        final FrozenTree frozen = FrozenTree.freeze(root);
+        Assert.assertEquals(6, frozen.size());
+        Assert.assertEquals(root.getText(root), frozen.getText(root));
+        Assert.assertEquals(p.getText(root), frozen.getText(p));
+        Assert.assertEquals(p, frozen.getParent(first));
+        Assert.assertEquals(hi, frozen.getNextSibling(first));
+        Assert.assertEquals(IteratorUtil.asCollection(root.getDescendants(root)),
+                IteratorUtil.asCollection(frozen.getDescendants(root)));
+        Assert.assertEquals(IteratorUtil.asCollection(hi.getAncestors(root)),
+                IteratorUtil.asCollection(frozen.getAncestors(hi)));
+        Assert.assertSame(frozen, frozen.refresh());
+
+        p.remove(root, hi, true);
+        Assert.assertFalse(frozen.isValid());
+        final FrozenTree refreshed = frozen.refresh();
+        Assert.assertTrue(refreshed.isValid());
+        Assert.assertEquals(FrozenTree.NONE, refreshed.indexOf(hi));
+        Assert.assertEquals(root.getText(root), refreshed.getText(root));
+    }
+
+    @Test
+    public void releaseListeners() {
+        paragraph();
+        final int registered = GoddagTreeNode.listeners.size();
+        for (int i = 0; i < 100; i++) {
+            final FrozenTree frozen = FrozenTree.freeze(root);
+            frozen.release();
+            Assert.assertFalse(frozen.isValid());
+            TextOffsetIndex.build(root).release();
+            TextCache.create(root).release();
+        }
+        Assert.assertEquals(registered, GoddagTreeNode.listeners.size());
+    }
+
+    @Test
+    public void textOffsetIndex() {
+        final GoddagTreeNode p = paragraph();
+        final Text first = (Text) p.getFirstChild(root);
+        final GoddagTreeNode hi = p.getLastChild(root);
+
+        final TextOffsetIndex index = TextOffsetIndex.build(root);
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(root.getText(root).length(), index.getLength());
+        Assert.assertEquals(first, index.getTextAt(0));
+        Assert.assertEquals(first, index.getTextAt(5));
+        Assert.assertEquals("second", index.getTextAt(6).getText());
+        Assert.assertEquals(12, index.getOffset(index.getTextAt(12)));
+
+        final List<Text> segments = first.split(2);
+        hi.insert(root, new Text(db, "inserted "), hi.getFirstChild(root));
+        p.insert(root, new Element(db, "tei", "empty"), null);
+        final Element seg = new Element(db, "tei", "seg");
+        seg.insert(root, new Text(db, "detached"), null);
+        p.insert(root, seg, null);
+        root.insert(root, hi, null);
+        assertIndexed(index);
+        Assert.assertEquals(segments.get(1), index.getTextAt(3));
+        Assert.assertEquals(-1, index.getOffset(first));
+
+        segments.get(0).setText("1");
+        assertIndexed(index);
+
+        root.remove(root, hi, true);
+        assertIndexed(index);
+        Assert.assertEquals(" third", index.getTextAt(index.getLength() - 1).getText());
+    }
+
+    @Test
+    public void textCache() {
+        final GoddagTreeNode p = paragraph();
+        final Text first = (Text) p.getFirstChild(root);
+        final GoddagTreeNode hi = p.getLastChild(root);
+        final GoddagTreeNode note = root.insert(root, new Element(db, "tei", "note"), null);
+        note.insert(root, new Text(db, "!"), null);
+
+        final TextCache cache = TextCache.create(root);
+        Assert.assertEquals("first second third!", cache.getText(root));
+        Assert.assertEquals(4, cache.size());
+
+        hi.insert(root, new Text(db, "!"), null);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("first second! third!", cache.getText(root));
+
+        first.setText("1st ");
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals("1st second!", cache.getText(p));
+        Assert.assertEquals(root.getText(root), cache.getText(root));
+
+        root.remove(root, note, true);
+        Assert.assertEquals(root.getText(root), cache.getText(root));
+
+        final TextCache bounded = TextCache.create(root, 12);
+        Assert.assertEquals(root.getText(root), bounded.getText(root));
+        Assert.assertEquals(root.getText(root).length(), bounded.getLength(root));
+        Assert.assertEquals(1, bounded.size());
+        Assert.assertEquals("1st second!", bounded.getText(p));
+    }
+
+    /**
+     * Builds <code>&lt;p&gt;first &lt;hi&gt;second&lt;/hi&gt;&lt;/p&gt; third</code> in the root.
+     */
+    private GoddagTreeNode paragraph() {
+        final GoddagTreeNode p = root.insert(root, new Element(db, "tei", "p"), null);
+        p.insert(root, new Text(db, "first "), null);
+        p.insert(root, new Element(db, "tei", "hi"), null).insert(root, new Text(db, "second"), null);
+        root.insert(root, new Text(db, " third"), null);
+        return p;
+    }
+
+    private static void assertIndexed(TextOffsetIndex index) {
+        final Element root = index.getRoot();
+        final String text = root.getText(root);
+        Assert.assertEquals(text.length(), index.getLength());
+        int offset = 0;
+        int ic = 0;
+        for (GoddagTreeNode descendant : root.getDescendants(root)) {
+            if (descendant instanceof Text) {
+                Assert.assertEquals(descendant, index.getText(ic));
+                Assert.assertEquals(offset, index.getStart(ic++));
+                offset += ((Text) descendant).getText().length();
+            }
+        }
+        Assert.assertEquals(ic, index.size());
+    }
+
+    @Test
+    public void cursor() {
+        final GoddagTreeNode p = paragraph();
+        final GoddagTreeNode hi = p.getLastChild(root);
+
+        final TreeCursor cursor = new TreeCursor(root);
+        for (GoddagTreeNode descendant : root.getDescendants(root)) {
+            Assert.assertTrue(cursor.nextDescendant());
+            Assert.assertEquals(descendant.node.getId(), cursor.getId());
+        }
+        Assert.assertFalse(cursor.nextDescendant());
+        Assert.assertEquals(root.node.getId(), cursor.getId());
+
+        cursor.reset(hi);
+        Assert.assertTrue(cursor.nextDescendant());
+        Assert.assertEquals("second", cursor.get().getText(root));
+        Assert.assertFalse(cursor.nextDescendant());
+        Assert.assertTrue(cursor.toPreviousSibling());
+        Assert.assertEquals(GoddagNode.NodeType.TEXT, cursor.getNodeType());
+        Assert.assertFalse(cursor.toPreviousSibling());
+        Assert.assertTrue(cursor.toParent());
+        Assert.assertEquals(p, cursor.get());
+    }
+
+    @Test
+    public void tokenize() {
+        final List<Text> texts = new ArrayList<Text>();
+        for (String content : new String[] { "Hello wor", "ld  foo\n", "bar" }) {
+            final Text text = new Text(db, content);
+            root.insert(root, text, null);
+            texts.add(text);
+        }
+
+        final Element words = new Element(db, "tei", "text");
+        final WhitespaceTokenMarkupGenerator whitespace = new WhitespaceTokenMarkupGenerator();
+        whitespace.setCommitInterval(2);
+        whitespace.generate(new ArrayList<Text>(texts), words);
+        texts.clear();
+        for (GoddagTreeNode node : root.getChildren(root)) {
+            texts.add((Text) node);
+        }
+
+        final List<String> tokens = new ArrayList<String>();
+        for (GoddagTreeNode token : words.getChildren(words)) {
+            Assert.assertEquals("seg", ((Element) token).getName());
+            tokens.add(token.getText(words));
+        }
+        Assert.assertEquals(Arrays.asList("Hello ", "world  ", "foo\n", "bar"), tokens);
+        Assert.assertEquals(root.getText(root), words.getText(words));
+
+        final Element lines = new Element(db, "tei", "text");
+        new LineTokenMarkupGenerator().generate(texts, lines);
+        tokens.clear();
+        for (GoddagTreeNode token : lines.getChildren(lines)) {
+            tokens.add(token.getText(lines));
+        }
+        Assert.assertEquals(Arrays.asList("Hello world  foo\n", "bar"), tokens);
+
+        try {
+            whitespace.generate(texts, words);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void rootPropertyEncoding() {
+        Assert.assertEquals(GoddagEdge.Encoding.ROOT_PROPERTY,
+                new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION).getEdgeEncoding());
+
+        final MultiRootedTree tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION,
+                GoddagEdge.Encoding.ROOT_PROPERTY);
+        final Element first = tree.newRoot("tei", "div");
+        final Element second = tree.newRoot("tei", "div");
+        final Text text = new Text(db, "shared");
+        first.insert(first, text, null);
+        second.insert(second, text, null);
+
+        Assert.assertEquals(GoddagEdge.Encoding.ROOT_PROPERTY, new Element(first.node).getEdgeEncoding());
+        Assert.assertEquals(first, text.getParent(first));
+        Assert.assertEquals(second, text.getParent(second));
+        Assert.assertEquals(2, IteratorUtil.count(text.getRoots().iterator()));
+
+        first.remove(first, text, false);
+        Assert.assertNull(text.getParent(first));
+        Assert.assertEquals(second, text.getParent(second));
+    }
+
+    @Test
+    public void rootTypeEncoding() {
+        final MultiRootedTree tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION,
+                GoddagEdge.Encoding.ROOT_TYPE);
+        final Element first = tree.newRoot("tei", "div");
+        final Element second = tree.newRoot("tei", "div");
+        final Text text = new Text(db, "shared");
+        first.insert(first, text, null);
+        second.insert(second, text, null);
+
+        Assert.assertEquals(first, text.getParent(first));
+        Assert.assertEquals(second, text.getParent(second));
+
+        final GoddagEdge sibling = first.getEdgeType(GoddagEdge.HAS_SIBLING);
+        Assert.assertSame(sibling, first.getEdgeType(GoddagEdge.HAS_SIBLING));
+        Assert.assertEquals(GoddagEdge.HAS_SIBLING.forRoot(first.node.getId()), sibling);
+        Assert.assertFalse(sibling.equals(second.getEdgeType(GoddagEdge.HAS_SIBLING)));
+    }
+
+    @Test
+    public void convertLegacyEdges() {
+        final Element legacyRoot = new Element(db, "tei", "div");
+        final Text first = new Text(db, "first");
+        final Text second = new Text(db, "second");
+        final long rootId = legacyRoot.node.getId();
+
+        legacyEdge(legacyRoot.node, first.node, GoddagEdge.CONTAINS, rootId);
+        legacyEdge(legacyRoot.node, second.node, GoddagEdge.CONTAINS, rootId);
+        legacyEdge(legacyRoot.node, first.node, GoddagEdge.HAS_FIRST_CHILD, rootId);
+        legacyEdge(first.node, second.node, GoddagEdge.HAS_SIBLING, rootId);
+        legacyEdge(second.node, legacyRoot.node, GoddagEdge.IS_LAST_CHILD_OF, rootId);
+
+        Assert.assertEquals(GoddagEdge.Encoding.ROOT_PROPERTY, legacyRoot.getEdgeEncoding());
+        Assert.assertEquals("firstsecond", legacyRoot.getText(legacyRoot));
+
+        try {
+            legacyRoot.setEdgeEncoding(GoddagEdge.Encoding.ROOT_TYPE);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+        }
+
+        GoddagEdge.convert(legacyRoot, GoddagEdge.Encoding.ROOT_TYPE);
+        Assert.assertEquals(GoddagEdge.Encoding.ROOT_TYPE, new Element(legacyRoot.node).getEdgeEncoding());
+        Assert.assertEquals("firstsecond", legacyRoot.getText(legacyRoot));
+        Assert.assertEquals(second, legacyRoot.getLastChild(legacyRoot));
+        Assert.assertEquals(legacyRoot, second.getParent(legacyRoot));
+        Assert.assertEquals(legacyRoot, first.getRoots().iterator().next());
+
+        GoddagEdge.convert(legacyRoot, GoddagEdge.Encoding.ROOT_PROPERTY);
+        Assert.assertEquals(GoddagEdge.Encoding.ROOT_PROPERTY, new Element(legacyRoot.node).getEdgeEncoding());
+        Assert.assertEquals("firstsecond", legacyRoot.getText(legacyRoot));
+        Assert.assertEquals(first, second.getPreviousSibling(legacyRoot));
+    }
+
+    private static void legacyEdge(Node from, Node to, GoddagEdge type, long root) {
+        from.createRelationshipTo(to, type).setProperty(GoddagNode.PREFIX + ".root", root);
+    }
 }
@@ -21,11 +21,18 @@
 
 package org.goddag4j;
 
-import static org.neo4j.graphdb.Direction.INCOMING;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import junit.framework.Assert;
 
+import org.goddag4j.io.GoddagXMLReader;
+import org.goddag4j.io.NamespaceMap;
 import org.junit.Test;
 import org.neo4j.helpers.collection.IteratorUtil;
+import org.xml.sax.InputSource;
 
 public class TextTest extends GraphDatabaseTestContext {
 
@@ -40,11 +47,126 @@ public class TextTest extends GraphDatabaseTestContext {
         for (Element root : roots) {
             root.insert(root, content, null);
         }
-        Assert.assertEquals(roots.length, IteratorUtil.count(content.node.getRelationships(GoddagEdge.CONTAINS, INCOMING).iterator()));
+        Assert.assertEquals(roots.length, IteratorUtil.count(content.getRoots().iterator()));
 
         content.split(3, 6);
         for (Element root : roots) {
             Assert.assertEquals(3, IteratorUtil.count(root.getChildren(root).iterator()));
         }
     }
+
+    @Test
+    public void splitBatch() {
+        final Element[] roots = new Element[4];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = new Element(db, "tei", "p");
+            if (i % 2 == 1) {
+                roots[i].setEdgeEncoding(GoddagEdge.Encoding.ROOT_TYPE);
+            }
+            root.insert(root, roots[i], null);
+        }
+        final Text first = new Text(db, "0123456789");
+        final Text second = new Text(db, "abcdef");
+        for (Element root : roots) {
+            root.insert(root, new Text(db, "<"), null);
+            root.insert(root, first, null);
+            root.insert(root, second, null);
+        }
+        roots[0].insert(roots[0], new Text(db, ">"), null);
+        roots[1].remove(roots[1], roots[1].getFirstChild(roots[1]), false);
+
+        final Map<Text, int[]> positions = new LinkedHashMap<Text, int[]>();
+        positions.put(first, new int[] { 3, 6 });
+        positions.put(second, new int[] { 0, 2 });
+        final Map<Text, List<Text>> segments = Text.split(positions);
+        Assert.assertEquals(3, segments.get(first).size());
+        Assert.assertEquals(2, segments.get(second).size());
+
+        for (Element root : roots) {
+            final StringBuilder children = new StringBuilder();
+            for (GoddagTreeNode child : root.getChildren(root)) {
+                Assert.assertEquals(root, child.getParent(root));
+                children.append(child.getText(root)).append('|');
+            }
+            final String expected = (root == roots[1] ? "" : "<|") + "012|345|6789|ab|cdef|" + (root == roots[0] ? ">|" : "");
+            Assert.assertEquals(expected, children.toString());
+
+            final StringBuilder reversed = new StringBuilder();
+            for (GoddagTreeNode child = root.getLastChild(root); child != null; child = child.getPreviousSibling(root)) {
+                reversed.insert(0, child.getText(root) + "|");
+            }
+            Assert.assertEquals(expected, reversed.toString());
+        }
+        Assert.assertEquals(0, IteratorUtil.count(first.getRoots().iterator()));
+    }
+
+    @Test
+    public void chunkedContent() {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; buf.length() < 40000; i++) {
+            buf.append(i).append(' ');
+        }
+        final String str = buf.toString();
+
+        final Text content = new Text(db, str, true);
+        root.insert(root, content, null);
+        Assert.assertTrue(content.isChunked());
+        Assert.assertEquals(str, content.getText());
+        Assert.assertEquals(str.length(), content.getLength());
+        Assert.assertEquals(str.substring(16380, 16390), content.getText(16380, 16390));
+
+        final List<Text> segments = content.split(100, 20000);
+        Assert.assertEquals(3, segments.size());
+        Assert.assertEquals(str.substring(100, 20000), segments.get(1).getText());
+        Assert.assertEquals(str.substring(20000, 20010), segments.get(2).getText(0, 10));
+        Assert.assertEquals(str, root.getText(root));
+
+        content.delete();
+        segments.get(0).setText("replaced");
+        Assert.assertTrue(segments.get(0).isChunked());
+        Assert.assertEquals("replaced" + str.substring(100), root.getText(root));
+    }
+
+    @Test
+    public void textStore() throws Exception {
+        final MultiRootedTree tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION);
+        final TextStore store = tree.getTextStore();
+        final GoddagXMLReader reader = new GoddagXMLReader(db, NamespaceMap.TEI_MAP);
+        reader.setTextStore(store);
+        final Element document = reader.parse(new InputSource(getClass().getResource("/george-algabal-tei.xml").toString()));
+        tree.addRoot(document);
+
+        final String text = document.getText(document);
+        Assert.assertEquals(text.length(), tree.findTextStore().getLength());
+        Assert.assertEquals(text, store.getText(document, document));
+        final StringWriter written = new StringWriter();
+        tree.findTextStore().write(written);
+        Assert.assertEquals(text, written.toString());
+
+        Text longest = null;
+        for (GoddagTreeNode node : document.getDescendants(document)) {
+            if (node instanceof Element && "lg".equals(((Element) node).getName())) {
+                Assert.assertEquals(node.getText(document), store.getText(document, node));
+            } else if (node instanceof Text && (longest == null || ((Text) node).getLength() > longest.getLength())) {
+                longest = (Text) node;
+            }
+        }
+
+        final Text segment = longest.split(5).get(1);
+        Assert.assertEquals(store.getNode(), segment.getSource());
+        Assert.assertEquals(text, store.getText(document, document));
+
+        final GoddagTreeNode parent = segment.getParent(document);
+        parent.remove(document, segment, false);
+        parent.insert(document, segment, parent.getFirstChild(document));
+        Assert.assertEquals(parent.getText(document), store.getText(document, parent));
+        segment.setText("replaced");
+        Assert.assertEquals(document.getText(document), store.getText(document, document));
+
+        final Text appended = tree.getTextStore().append("appended");
+        final Text other = tree.findTextStore().append(" by another store");
+        Assert.assertEquals("appended", appended.getText());
+        Assert.assertEquals(" by another store", other.getText());
+        Assert.assertEquals(text + "appended by another store", store.getText(0, store.getLength()));
+    }
 }
@@ -0,0 +1,64 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.goddag4j.Element;
+import org.goddag4j.GraphDatabaseTestContext;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class BinaryTest extends GraphDatabaseTestContext {
+    private final InputSource xml = new InputSource(getClass().getResource("/george-algabal-tei.xml").toString());
+
+    @Test
+    public void roundTrip() throws Exception {
+        final List<Element> trees = withTextRoot(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml));
+
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        new GoddagBinaryWriter(NamespaceMap.TEI_MAP).write(trees, binary);
+
+        assertCopied(trees, new GoddagBinaryReader(db).read(new ByteArrayInputStream(binary.toByteArray())));
+
+        final File file = File.createTempFile("goddag-test-", ".bin");
+        try {
+            final FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(binary.toByteArray());
+            } finally {
+                out.close();
+            }
+            final GoddagBinaryReader reader = new GoddagBinaryReader(db);
+            assertCopied(trees, reader.read(file));
+            Assert.assertEquals(NamespaceMap.TEI_MAP, reader.getNamespaces());
+        } finally {
+            file.delete();
+        }
+    }
+}
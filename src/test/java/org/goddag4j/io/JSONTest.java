@@ -0,0 +1,80 @@
+/**
+ * GODDAG for Java (goddag4j):
+ * Java implementation of the GODDAG data model to express document
+ * structures including overlapping markup
+ *
+ * Copyright (C) 2010 the respective authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.goddag4j.io;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.goddag4j.Element;
+import org.goddag4j.GraphDatabaseTestContext;
+import org.goddag4j.Text;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class JSONTest extends GraphDatabaseTestContext {
+    private final InputSource xml = new InputSource(getClass().getResource("/george-algabal-tei.xml").toString());
+
+    @Test
+    public void streaming() throws Exception {
+        final Element first = new Element(db, "tei", "text");
+        final Element second = new Element(db, "tei", "text");
+        final Element p = (Element) first.insert(first, new Element(db, "tei", "p"), null);
+        final Text shared = new Text(db, "shared text");
+        p.insert(first, shared, null);
+        second.insert(second, shared, null);
+
+        final StringWriter json = new StringWriter();
+        final JsonGenerator out = new JsonFactory().createJsonGenerator(json);
+        final GoddagJSONWriter writer = new GoddagJSONWriter(NamespaceMap.EMPTY);
+        writer.setStreaming(true);
+        writer.write(Arrays.asList(first, second), out);
+        out.flush();
+
+        final String written = json.toString();
+        Assert.assertEquals(written.indexOf("shared text"), written.lastIndexOf("shared text"));
+        Assert.assertTrue(written.contains("\"n\":[" + shared.node.getId() + ",\"shared text\"]"));
+        Assert.assertFalse(written.contains("\"nodes\""));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        final List<Element> trees = withTextRoot(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml));
+
+        for (boolean streaming : new boolean[] { false, true }) {
+            final StringWriter json = new StringWriter();
+            final JsonGenerator out = new JsonFactory().createJsonGenerator(json);
+            final GoddagJSONWriter writer = new GoddagJSONWriter(NamespaceMap.TEI_MAP);
+            writer.setStreaming(streaming);
+            writer.write(trees, out);
+            out.flush();
+
+            final GoddagJSONReader reader = new GoddagJSONReader(db);
+            assertCopied(trees, reader.read(new JsonFactory().createJsonParser(json.toString())));
+            Assert.assertEquals(NamespaceMap.TEI_MAP, reader.getNamespaces());
+        }
+    }
+}
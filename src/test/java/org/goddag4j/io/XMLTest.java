@@ -21,13 +21,46 @@
 
 package org.goddag4j.io;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
 
 import org.goddag4j.Element;
+import org.goddag4j.GoddagNode;
+import org.goddag4j.GoddagTreeNode;
 import org.goddag4j.GraphDatabaseTestContext;
+import org.goddag4j.MultiRootedTree;
+import org.goddag4j.Text;
+import org.goddag4j.TextStore;
 import org.junit.Assert;
 import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.neo4j.kernel.impl.batchinsert.BatchInserter;
+import org.neo4j.kernel.impl.batchinsert.BatchInserterImpl;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+import com.google.common.io.Files;
 
 public class XMLTest extends GraphDatabaseTestContext {
     private final InputSource xml = new InputSource(getClass().getResource("/george-algabal-tei.xml").toString());
@@ -43,4 +76,264 @@ public class XMLTest extends GraphDatabaseTestContext {
         
         dump(new GoddagXMLWriter(algabal, NamespaceMap.TEI_MAP, true).toSAXSource());
     }
+
+    @Test
+    public void streamWrite() throws Exception {
+        final Element algabal = new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml);
+
+        final String written = write(new GoddagXMLWriter(algabal, NamespaceMap.TEI_MAP, false));
+        Assert.assertTrue(toDOM(algabal).isEqualNode(toDOM(parse(written))));
+    }
+
+    @Test
+    public void rangeWrite() throws Exception {
+        final Element algabal = new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml);
+
+        Element firstPart = null;
+        Text firstLine = null;
+        Text fourthLine = null;
+        for (GoddagTreeNode node : algabal.getDescendants(algabal)) {
+            if (firstPart == null && node instanceof Element && "div".equals(((Element) node).getName())
+                    && "body".equals(((Element) node.getParent(algabal)).getName())) {
+                firstPart = (Element) node;
+            } else if (node instanceof Text && ((Text) node).getText().startsWith("hr hallen")) {
+                firstLine = (Text) node;
+            } else if (node instanceof Text && ((Text) node).getText().startsWith("Wie jene blendend")) {
+                fourthLine = (Text) node;
+            }
+        }
+
+        final GoddagXMLWriter pageWriter = new GoddagXMLWriter(algabal, NamespaceMap.TEI_MAP, false);
+        pageWriter.setChildRange(firstPart, 1, 3);
+        final String page = write(pageWriter);
+        Assert.assertTrue(page, page.contains("<tei:body><tei:div tei:n=\"1\"><tei:pb"));
+        Assert.assertTrue(page, page.contains("hr hallen prahlend"));
+        Assert.assertFalse(page, page.contains("IM UNTERREICH:"));
+        Assert.assertFalse(page, page.contains("er saal des gelben"));
+        Assert.assertFalse(page, page.contains("STEFAN GEORGE"));
+
+        final GoddagXMLWriter linesWriter = new GoddagXMLWriter(algabal, NamespaceMap.TEI_MAP, false);
+        linesWriter.setRange(firstLine, fourthLine);
+        final Element lines = parse(write(linesWriter));
+        final String linesText = lines.getText(lines);
+        Assert.assertTrue(linesText, linesText.startsWith("hr hallen prahlend"));
+        Assert.assertTrue(linesText, linesText.endsWith("Wie jene blendend im schosse der flut"));
+
+        final GoddagXMLWriter prefixWriter = new GoddagXMLWriter(algabal, NamespaceMap.TEI_MAP, false);
+        prefixWriter.setCharacterLimit(100);
+        final StringWriter prefix = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(prefixWriter.toSAXSource(), new StreamResult(prefix));
+        final Element prefixRoot = parse(prefix.toString());
+        Assert.assertEquals(algabal.getText(algabal).substring(0, 100), prefixRoot.getText(prefixRoot));
+    }
+
+    private static String write(GoddagXMLWriter writer) throws Exception {
+        final StringWriter buf = new StringWriter();
+        final XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(buf);
+        writer.write(out);
+        out.close();
+        return buf.toString();
+    }
+
+    private Element parse(String xml) throws Exception {
+        return new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(new InputSource(new StringReader(xml)));
+    }
+
+    @Test
+    public void commitInBatches() throws Exception {
+        endTransaction();
+
+        final GoddagXMLReader reader = new GoddagXMLReader(db, NamespaceMap.TEI_MAP);
+        reader.setCommitInterval(50);
+        final Element algabal = reader.parse(xml);
+
+        startTransaction();
+        Assert.assertTrue(toDOM(algabal).isEqualNode(toDOM(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml))));
+    }
+
+    @Test
+    public void settingsAfterAttach() throws Exception {
+        final GoddagXMLReader reader = new GoddagXMLReader(db, NamespaceMap.TEI_MAP);
+        final XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+        reader.attachTo(xmlReader);
+
+        final TextStore store = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION).getTextStore();
+        reader.setTextStore(store);
+        xmlReader.parse(xml);
+
+        final Element algabal = reader.result();
+        Assert.assertEquals(algabal.getText(algabal).length(), store.getLength());
+    }
+
+    @Test
+    public void pullParse() throws Exception {
+        final InputStream xmlStream = getClass().getResourceAsStream("/george-algabal-tei.xml");
+        try {
+            final XMLStreamReader in = XMLInputFactory.newInstance().createXMLStreamReader(xmlStream);
+            final GoddagStAXReader reader = new GoddagStAXReader(db, NamespaceMap.TEI_MAP, in);
+            while (reader.step(10)) {
+                Assert.assertFalse(reader.isFinished());
+            }
+            Assert.assertTrue(toDOM(reader.result()).isEqualNode(toDOM(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml))));
+        } finally {
+            xmlStream.close();
+        }
+    }
+
+    @Test
+    public void pipelinedParse() throws Exception {
+        final GoddagPipelinedXMLReader reader = new GoddagPipelinedXMLReader(db, NamespaceMap.TEI_MAP);
+        reader.setChunkSize(7);
+        reader.setQueueCapacity(2);
+        final Element algabal = reader.parse(xml);
+        Assert.assertTrue(toDOM(algabal).isEqualNode(toDOM(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml))));
+    }
+
+    @Test
+    public void pipelinedParseError() throws Exception {
+        endTransaction();
+        final int nodes = IteratorUtil.count(db.getAllNodes());
+
+        final StringBuilder malformed = new StringBuilder("<text xmlns=\"http://www.tei-c.org/ns/1.0\">");
+        for (int i = 0; i < 100; i++) {
+            malformed.append("<p>").append(i).append("</p>");
+        }
+        malformed.append("<p>");
+
+        final GoddagPipelinedXMLReader reader = new GoddagPipelinedXMLReader(db, NamespaceMap.TEI_MAP);
+        reader.setCommitInterval(1000);
+        reader.setChunkSize(7);
+        reader.setQueueCapacity(2);
+        try {
+            reader.parse(new InputSource(new StringReader(malformed.toString())));
+            Assert.fail();
+        } catch (SAXParseException e) {
+        }
+
+        Assert.assertEquals(nodes, IteratorUtil.count(db.getAllNodes()));
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (GoddagPipelinedXMLReader.class.getSimpleName().equals(thread.getName())) {
+                thread.join(1000);
+                Assert.assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    @Test
+    public void parallelImport() throws Exception {
+        endTransaction();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<InputSource> sources = new ArrayList<InputSource>();
+            for (int i = 0; i < 5; i++) {
+                sources.add(new InputSource(xml.getSystemId()));
+            }
+            sources.add(new InputSource(getClass().getResource("/").toString() + "missing.xml"));
+
+            final GoddagParallelXMLImporter importer = new GoddagParallelXMLImporter(db, NamespaceMap.TEI_MAP, executor);
+            importer.setCommitInterval(100);
+            final List<GoddagParallelXMLImporter.Result> results = importer.importAll(sources);
+
+            Assert.assertEquals(sources.size(), results.size());
+            for (int i = 0; i < 5; i++) {
+                final GoddagParallelXMLImporter.Result result = results.get(i);
+                Assert.assertTrue(result.toString(), result.isSuccessful());
+                Assert.assertEquals(result.getRoot(), result.getTree().iterator().next());
+            }
+            Assert.assertFalse(results.get(5).isSuccessful());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelImportFailure() throws Exception {
+        endTransaction();
+        final int nodes = IteratorUtil.count(db.getAllNodes());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GoddagParallelXMLImporter importer = new GoddagParallelXMLImporter(db, NamespaceMap.TEI_MAP, executor);
+            importer.setCommitInterval(2);
+            final List<GoddagParallelXMLImporter.Result> results = importer.importAll(Collections.singletonList(
+                    new InputSource(new StringReader("<text xmlns=\"http://www.tei-c.org/ns/1.0\"><p>a</p><p>b</p><p>c</p>"))));
+
+            Assert.assertFalse(results.get(0).isSuccessful());
+            Assert.assertTrue(results.get(0).getFailure() instanceof SAXParseException);
+            Assert.assertEquals(nodes, IteratorUtil.count(db.getAllNodes()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelExport() throws Exception {
+        final MultiRootedTree tree = new MultiRootedTree(db.createNode(), MultiRootedTree.ROOT_RELATION);
+        for (int i = 0; i < 3; i++) {
+            tree.addRoot(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(xml));
+        }
+        endTransaction();
+
+        final Map<Element, StringWriter> outputs = new ConcurrentHashMap<Element, StringWriter>();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<GoddagParallelXMLExporter.Result> results = new GoddagParallelXMLExporter(NamespaceMap.TEI_MAP,
+                    executor).exportAll(tree, new GoddagParallelXMLExporter.Target() {
+
+                public Writer open(Element root) {
+                    final StringWriter out = new StringWriter();
+                    outputs.put(root, out);
+                    return out;
+                }
+            });
+
+            startTransaction();
+            Assert.assertEquals(3, results.size());
+            for (GoddagParallelXMLExporter.Result result : results) {
+                Assert.assertTrue(result.toString(), result.isSuccessful());
+                final InputSource exported = new InputSource(new StringReader(outputs.get(result.getRoot()).toString()));
+                Assert.assertTrue(toDOM(result.getRoot()).isEqualNode(toDOM(new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(exported))));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void batchImport() throws Exception {
+        assertBatchImport(xml, xml);
+    }
+
+    @Test
+    public void batchImportTrailingMarkup() throws Exception {
+        final String trailing = "<TEI xmlns=\"http://www.tei-c.org/ns/1.0\"><text>a<!-- inside -->b</text></TEI>"
+                + "<!-- trailing --><?trailing pi?>";
+        assertBatchImport(new InputSource(new StringReader(trailing)), new InputSource(new StringReader(trailing)));
+    }
+
+    private void assertBatchImport(InputSource batchInput, InputSource input) throws Exception {
+        final File storeDir = new File(System.getProperty("java.io.tmpdir", "."), "goddag-test-batch-db").getCanonicalFile();
+        if (storeDir.exists()) {
+            Files.deleteRecursively(storeDir);
+        }
+
+        final BatchInserter inserter = new BatchInserterImpl(storeDir.getAbsolutePath());
+        final long rootId;
+        try {
+            rootId = new GoddagBatchXMLReader(inserter, NamespaceMap.TEI_MAP).parse(batchInput);
+        } finally {
+            inserter.shutdown();
+        }
+
+        final Element expected = new GoddagXMLReader(db, NamespaceMap.TEI_MAP).parse(input);
+        final GraphDatabaseService batchDb = new EmbeddedGraphDatabase(storeDir.getAbsolutePath());
+        try {
+            final Element actual = (Element) GoddagNode.wrap(batchDb.getNodeById(rootId));
+            Assert.assertTrue(toDOM(expected).isEqualNode(toDOM(actual)));
+        } finally {
+            batchDb.shutdown();
+            Files.deleteRecursively(storeDir);
+        }
+    }
 }